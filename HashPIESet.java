@@ -0,0 +1,79 @@
+package src;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * HashPIESet - PIESet backed by a HashSet of boxed Integers (the original representation).
+ */
+public final class HashPIESet implements PIESet {
+
+    private final Set<Integer> elements;
+
+    public HashPIESet() {
+        this.elements = new HashSet<>();
+    }
+
+    private HashPIESet(Set<Integer> elements) {
+        this.elements = elements;
+    }
+
+    @Override
+    public void add(int value) {
+        elements.add(value);
+    }
+
+    @Override
+    public boolean contains(int value) {
+        return elements.contains(value);
+    }
+
+    @Override
+    public long cardinality() {
+        return elements.size();
+    }
+
+    @Override
+    public HashPIESet and(PIESet other) {
+        Set<Integer> result = new HashSet<>();
+        for (int value : elements) {
+            if (other.contains(value)) result.add(value);
+        }
+        return new HashPIESet(result);
+    }
+
+    @Override
+    public long andCardinality(PIESet other) {
+        long n = 0;
+        for (int value : elements) {
+            if (other.contains(value)) n++;
+        }
+        return n;
+    }
+
+    @Override
+    public HashPIESet or(PIESet other) {
+        Set<Integer> result = new HashSet<>(elements);
+        other.forEach(result::add);
+        return new HashPIESet(result);
+    }
+
+    @Override
+    public HashPIESet andNot(PIESet other) {
+        Set<Integer> result = new HashSet<>();
+        for (int value : elements) {
+            if (!other.contains(value)) result.add(value);
+        }
+        return new HashPIESet(result);
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        for (int value : elements) action.accept(value);
+    }
+
+    @Override
+    public String toString() {
+        return elements.toString();
+    }
+}
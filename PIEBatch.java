@@ -0,0 +1,329 @@
+package src;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * PIEBatch - non-interactive mode: solves every PIE problem in a file and writes one
+ * result line per problem.
+ *
+ * One problem per line, blank lines and lines starting with '#' are skipped:
+ * <pre>
+ *   Maths=50, Science=45, Maths∩Science=12                 sizes and intersections
+ *   A=[1 2 3]; B=[2 3 4]                                   raw elements
+ *   {"Maths": 50, "Science": 45, "Maths∩Science": 12}      JSON object per line
+ *   {"A": [1, 2, 3], "B": [2, 3, 4]}
+ * </pre>
+ * The parser reads bytes straight from a buffered stream and parses numbers without
+ * creating Strings; only set names and keys are decoded.
+ */
+public final class PIEBatch {
+
+    // Prevent instantiation
+    private PIEBatch() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /** Receives the contents of each problem as it is parsed. */
+    public interface Listener {
+        // "A" = 50 or "A∩B" = 12
+        void count(String key, long value);
+
+        // A = [ ... ] : beginSet, then element() for each value, then endSet
+        void beginSet(String name);
+
+        void element(long value);
+
+        void endSet();
+
+        // end of one problem (one line)
+        void endProblem(int lineNumber);
+
+        // the line could not be parsed; anything reported for it so far should be dropped
+        void invalidProblem(int lineNumber, String message);
+    }
+
+    // ----------- Solve every problem in input, write results to output -----------
+    public static int run(Path input, Path output) throws IOException {
+        try (InputStream in = Files.newInputStream(input);
+             Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            return run(in, out);
+        }
+    }
+
+    public static int run(InputStream in, Writer out) throws IOException {
+        return run(in, out, Integer.MAX_VALUE);
+    }
+
+    // Problems with more than maxSets sets get an error row instead of being solved
+    public static int run(InputStream in, Writer out, int maxSets) throws IOException {
+        Solver solver = new Solver(out, maxSets);
+        out.write("problem,line,sets,union,precision" + System.lineSeparator());
+        parse(in, solver);
+        out.flush();
+        return solver.problems;
+    }
+
+    // ----------- Streaming tokenizer -----------
+    public static void parse(InputStream input, Listener listener) throws IOException {
+        new Parser(input, listener).parse();
+    }
+
+    /** Solves each problem as soon as its line has been parsed. */
+    private static final class Solver implements Listener {
+        private final Writer out;
+        private final int maxSets;
+        private final PIESetBackend backend = PIESetBackend.fromSystemProperty();
+        private final PIECache cache = new PIECache();
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+        private final List<String> setNames = new ArrayList<>();
+        private final List<PIESet> sets = new ArrayList<>();
+        private PIESet current;
+        private int problems;
+
+        Solver(Writer out, int maxSets) {
+            this.out = out;
+            this.maxSets = maxSets;
+        }
+
+        @Override
+        public void count(String key, long value) {
+            counts.put(key, value);
+        }
+
+        @Override
+        public void beginSet(String name) {
+            setNames.add(name);
+            current = backend.create();
+        }
+
+        @Override
+        public void element(long value) {
+            current.add(Math.toIntExact(value));
+        }
+
+        @Override
+        public void endSet() {
+            sets.add(current);
+            current = null;
+        }
+
+        @Override
+        public void endProblem(int lineNumber) {
+            String result;
+            try {
+                result = solve();
+            } catch (RuntimeException e) {
+                result = errorColumns(e.getMessage());
+            }
+            write(lineNumber, result);
+        }
+
+        @Override
+        public void invalidProblem(int lineNumber, String message) {
+            write(lineNumber, errorColumns(message));
+        }
+
+        private void write(int lineNumber, String result) {
+            problems++;
+            counts.clear();
+            setNames.clear();
+            sets.clear();
+            current = null;
+            try {
+                out.write(problems + "," + lineNumber + "," + result + System.lineSeparator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void checkSize(int n) {
+            if (n > maxSets) throw new IllegalArgumentException("too many sets: " + n + " > " + maxSets);
+        }
+
+        private static String errorColumns(String message) {
+            return ",error: " + String.valueOf(message).replace(',', ';') + ",";
+        }
+
+        private String solve() {
+            if (!sets.isEmpty()) {
+                checkSize(sets.size());
+                if (!counts.isEmpty()) throw new IllegalArgumentException("mixes sizes and raw elements");
+                PIETotal union = PIETotal.of(PIEBitmap.orAllCardinality(sets));
+                return sets.size() + "," + union + "," + union.precision();
+            }
+            List<String> names = new ArrayList<>();
+            for (String key : counts.keySet()) {
+                if (key.indexOf('∩') < 0) names.add(key);
+            }
+            String[] setNames = names.toArray(new String[0]);
+            checkSize(setNames.length);
+            // checked on both paths, so the answer to bad input does not depend on the path taken
+            Map<Long, Long> terms = PIESparse.terms(counts, setNames);
+            PIESparse.requireConsistent(terms, setNames);
+            PIETotal union = PIESparse.preferred(counts.size(), setNames.length)
+                    ? PIESparse.union(terms)
+                    : cache.union(counts, setNames);
+            return names.size() + "," + union + "," + union.precision();
+        }
+    }
+
+    /** Byte-level state machine over a buffered stream. */
+    private static final class Parser {
+        private final InputStream in;
+        private final Listener listener;
+        private final byte[] buffer = new byte[1 << 16];
+        private int pos;
+        private int limit;
+        private int line = 1;
+        private byte[] name = new byte[64];
+
+        Parser(InputStream in, Listener listener) {
+            this.in = in;
+            this.listener = listener;
+        }
+
+        void parse() throws IOException {
+            boolean inProblem = false;
+            int c;
+            while ((c = peek()) >= 0) {
+                if (c == '\n') {
+                    pos++;
+                    if (inProblem) listener.endProblem(line);
+                    inProblem = false;
+                    line++;
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == ',' || c == ';' || c == '{' || c == '}') {
+                    pos++;
+                } else if (c == '#' && !inProblem) {
+                    while ((c = peek()) >= 0 && c != '\n') pos++;
+                } else {
+                    inProblem = true;
+                    try {
+                        entry();
+                    } catch (IllegalArgumentException | ArithmeticException e) {
+                        // report the bad line and carry on with the next one
+                        while ((c = peek()) >= 0 && c != '\n') pos++;
+                        listener.invalidProblem(line, e.getMessage());
+                        inProblem = false;
+                    }
+                }
+            }
+            if (inProblem) listener.endProblem(line);
+        }
+
+        // name (= or :) value
+        private void entry() throws IOException {
+            String key = readName();
+            skipSpaces();
+            int c = peek();
+            if (c != '=' && c != ':') throw error("expected '=' or ':' after " + key);
+            pos++;
+            skipSpaces();
+            c = peek();
+            if (c == '[' || c == '{') {
+                int close = c == '[' ? ']' : '}';
+                pos++;
+                listener.beginSet(key);
+                while (true) {
+                    c = peek();
+                    if (c < 0) throw error("unterminated element list for " + key);
+                    if (c == close) {
+                        pos++;
+                        break;
+                    }
+                    if (c == '\n') line++;
+                    if (c == ' ' || c == ',' || c == '\t' || c == '\r' || c == '\n') {
+                        pos++;
+                    } else {
+                        listener.element(readLong());
+                    }
+                }
+                listener.endSet();
+            } else {
+                listener.count(key, readLong());
+            }
+        }
+
+        private String readName() throws IOException {
+            int length = 0;
+            int c = peek();
+            if (c == '"') {
+                pos++;
+                while ((c = read()) != '"') {
+                    if (c < 0 || c == '\n') throw error("unterminated quoted name");
+                    if (c == '\\') {
+                        c = read();
+                        if (c == 'u') {
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) code = code * 16 + Character.digit(read(), 16);
+                            byte[] utf8 = String.valueOf((char) code).getBytes(StandardCharsets.UTF_8);
+                            for (byte b : utf8) length = append(length, b);
+                            continue;
+                        }
+                    }
+                    length = append(length, c);
+                }
+            } else {
+                while ((c = peek()) >= 0 && c != '=' && c != ':' && c != '\n') {
+                    pos++;
+                    length = append(length, c);
+                }
+                while (length > 0 && (name[length - 1] == ' ' || name[length - 1] == '\t')) length--;
+            }
+            if (length == 0) throw error("missing set name");
+            return new String(name, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int append(int length, int c) {
+            if (length == name.length) name = Arrays.copyOf(name, length * 2);
+            name[length] = (byte) c;
+            return length + 1;
+        }
+
+        private long readLong() throws IOException {
+            boolean negative = false;
+            int c = peek();
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                pos++;
+                c = peek();
+            }
+            if (c < '0' || c > '9') throw error("expected a number");
+            long value = 0;
+            while ((c = peek()) >= '0' && c <= '9') {
+                pos++;
+                value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+            }
+            return negative ? -value : value;
+        }
+
+        private void skipSpaces() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\t') pos++;
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos] & 0xFF;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            if (c >= 0) pos++;
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("line " + line + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+/** The batch parser's events for each input format, and the result rows of run(). */
+class PIEBatchTest {
+
+    /** Records parser events as text, one problem per entry. */
+    private static final class Recorder implements PIEBatch.Listener {
+        private final List<String> problems = new ArrayList<>();
+        private StringBuilder current = new StringBuilder();
+
+        @Override
+        public void count(String key, long value) {
+            current.append(key).append('=').append(value).append(' ');
+        }
+
+        @Override
+        public void beginSet(String name) {
+            current.append(name).append("=[");
+        }
+
+        @Override
+        public void element(long value) {
+            current.append(value).append(' ');
+        }
+
+        @Override
+        public void endSet() {
+            current.append("] ");
+        }
+
+        @Override
+        public void endProblem(int lineNumber) {
+            problems.add(lineNumber + ": " + current.toString().trim());
+            current = new StringBuilder();
+        }
+
+        @Override
+        public void invalidProblem(int lineNumber, String message) {
+            problems.add(lineNumber + ": invalid");
+            current = new StringBuilder();
+        }
+    }
+
+    private static List<String> parse(String input) throws IOException {
+        Recorder recorder = new Recorder();
+        PIEBatch.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), recorder);
+        return recorder.problems;
+    }
+
+    @Test
+    void parsesEveryFormat() throws IOException {
+        String input = String.join("\n",
+                "# comment",
+                "Maths=50, Science=45, Maths∩Science=12",
+                "",
+                "A=[1 2 3]; B=[-2, +3 4]",
+                "{\"Maths\": 50, \"Sci\\u00e9nce\": 45, \"Maths∩Sci\\u00e9nce\": 12}",
+                "{\"A\": [1, 2], \"B\": []}",
+                "  Spaced Name  =  7  ");
+        assertEquals(List.of(
+                "2: Maths=50 Science=45 Maths∩Science=12",
+                "4: A=[1 2 3 ] B=[-2 3 4 ]",
+                "5: Maths=50 Sciénce=45 Maths∩Sciénce=12",
+                "6: A=[1 2 ] B=[]",
+                "7: Spaced Name=7"), parse(input));
+    }
+
+    @Test
+    void badLinesAreReportedAndSkipped() throws IOException {
+        String input = "A=1, B=x\nA=2\nA=99999999999999999999\nA=[1 2";
+        assertEquals(List.of("1: invalid", "2: A=2", "3: invalid", "4: invalid"), parse(input));
+    }
+
+    @Test
+    void numbersRoundTripThroughText() throws IOException {
+        Random random = new Random(7);
+        StringBuilder input = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int line = 1; line <= 200; line++) {
+            long count = random.nextLong();
+            StringBuilder elements = new StringBuilder();
+            StringBuilder shown = new StringBuilder();
+            for (int i = 0; i < random.nextInt(20); i++) {
+                int value = random.nextInt();
+                elements.append(value).append(random.nextBoolean() ? ", " : " ");
+                shown.append(value).append(' ');
+            }
+            input.append("K=").append(count).append("; S=[").append(elements).append("]\n");
+            expected.add(line + ": K=" + count + " S=[" + shown + "]");
+        }
+        assertEquals(expected, parse(input.toString()));
+    }
+
+    @Test
+    void runWritesOneRowPerProblem() throws IOException {
+        String input = "A=10, B=20, A∩B=5\nA=[1 2 3]; B=[2 3 4]\nA=1, B=2; C=[1]\nA=5, oops\n";
+        StringWriter out = new StringWriter();
+        int solved = PIEBatch.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+        String[] rows = out.toString().split(System.lineSeparator());
+        assertEquals(4, solved);
+        assertEquals("problem,line,sets,union,precision", rows[0]);
+        assertEquals("1,1,2,25,LONG", rows[1]);
+        assertEquals("2,2,2,4,LONG", rows[2]);
+        assertTrue(rows[3].startsWith("3,3,,error:"), rows[3]);
+        assertTrue(rows[4].startsWith("4,4,,error:"), rows[4]);
+    }
+
+    @Test
+    void runRejectsInconsistentSizesOnTheDensePath() throws IOException {
+        // three sets and four keys: small enough for the dense path, where A∩B∩C without A∩B used to be summed
+        StringWriter out = new StringWriter();
+        PIEBatch.run(new ByteArrayInputStream("A=1, B=1, C=1, A∩B∩C=1\n".getBytes(StandardCharsets.UTF_8)), out);
+        assertTrue(out.toString().contains("Inconsistent intersections"), out.toString());
+    }
+
+    @Test
+    void runRejectsRepeatedAndUnknownNamesInKeys() throws IOException {
+        // dense (few keys) and sparse (many sets) paths alike
+        String input = "A=1, B=2, A∩A=1\nA=1, B=2, A∩X=1\n"
+                + "S0=1, S1=1, S2=1, S3=1, S4=1, S5=1, S6=1, S7=1, S8=1, S9=1, S0∩S0=1\n";
+        StringWriter out = new StringWriter();
+        PIEBatch.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+        String[] rows = out.toString().split(System.lineSeparator());
+        assertTrue(rows[1].contains("repeated"), rows[1]);
+        assertTrue(rows[2].contains("Unknown set 'X'"), rows[2]);
+        assertTrue(rows[3].contains("repeated"), rows[3]);
+    }
+
+    @Test
+    void runRejectsProblemsOverTheSetLimit() throws IOException {
+        StringWriter out = new StringWriter();
+        PIEBatch.run(new ByteArrayInputStream("A=1, B=2, C=3\n".getBytes(StandardCharsets.UTF_8)), out, 2);
+        assertTrue(out.toString().contains("too many sets"), out.toString());
+    }
+}
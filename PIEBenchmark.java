@@ -0,0 +1,216 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.logging.*;
+
+import src.PIEBitmap;
+import src.PIEColumns;
+import src.PIEINPUT;
+import src.PIELattice;
+import src.PIEMaskEngine;
+import src.PIEPlan;
+import src.PIERegions;
+import src.PIESet;
+import src.PIESetBackend;
+import src.PIESubsets;
+import src.pied2;
+import src.piev4;
+import src.userfriendlypied3;
+
+/**
+ * Quick, no-dependency fallback for the JMH benchmarks in jmh/ (a smaller matrix; plain javac and java).
+ * Runs in one JVM without forks, so treat its numbers as rough; use the JMH build for real comparisons.
+ * Reports throughput, allocated bytes per operation and p99 latency.
+ *
+ * Usage: java PIEBenchmark [filter]   (runs only benchmarks whose name contains filter)
+ */
+public class PIEBenchmark {
+
+    private static final int WARMUP_MILLIS = 300;
+    private static final int MEASURE_MILLIS = 1000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final PrintStream OUT = System.out;
+
+    // Keeps results alive so the JIT cannot drop the measured work
+    private static long sink;
+
+    private static String filter = "";
+
+    // Runs op repeatedly for warm-up, then measures each call individually
+    private static void bench(String name, Runnable op) {
+        if (!name.contains(filter)) return;
+
+        long end = System.nanoTime() + WARMUP_MILLIS * 1_000_000L;
+        while (System.nanoTime() < end) op.run();
+
+        long[] samples = new long[1024];
+        int count = 0;
+        long allocBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        end = start + MEASURE_MILLIS * 1_000_000L;
+        long now = start;
+        while (now < end || count < 3) {
+            op.run();
+            long after = System.nanoTime();
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = after - now;
+            now = after;
+        }
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocBefore;
+        double seconds = (now - start) / 1e9;
+
+        Arrays.sort(samples, 0, count);
+        long p99 = samples[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+
+        OUT.printf("%-48s %14.1f ops/s %16d B/op %14.3f us p99%n",
+                name, count / seconds, allocated / count, p99 / 1e3);
+    }
+
+    // ----------- Subset generators -----------
+    @SuppressWarnings("deprecation") // the eager generator is the baseline being measured
+    private static void subsetBenchmarks() {
+        for (int n = 8; n <= 20; n += 4) {
+            final int size = n;
+            bench("generateSubsets List<List<Integer>> n=" + n, () -> {
+                List<List<Integer>> subsets = new ArrayList<>();
+                pied2.generateSubsets(size, subsets);
+                sink += subsets.size();
+            });
+            bench("PIESubsets.lists List<Integer> n=" + n, () -> {
+                for (List<Integer> subset : PIESubsets.lists(size)) sink += subset.size();
+            });
+            bench("PIESubsets.cursor int[] n=" + n, () -> {
+                PIESubsets.Cursor cursor = PIESubsets.cursor(size);
+                while (cursor.next()) sink += cursor.size();
+            });
+        }
+    }
+
+    // ----------- inclusionExclusion, n = 3 .. 24 -----------
+    private static void inclusionExclusionBenchmarks() {
+        Random random = new Random(42);
+        for (int n = 3; n <= 24; n += 3) {
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) names[i] = "S" + i;
+            // Sizes built from random Venn regions, so userfriendlypied3's validation passes
+            long[] regions = new long[1 << n];
+            for (int mask = 1; mask < regions.length; mask++) regions[mask] = random.nextInt(1000);
+            long[] values = PIERegions.intersections(regions);
+            Map<String, Long> data = new LinkedHashMap<>();
+            if (n <= 18) {
+                for (int mask = 1; mask < values.length; mask++) data.put(PIEMaskEngine.key(mask, names), values[mask]);
+            }
+
+            bench("PIEMaskEngine.union n=" + n, () -> sink += PIEMaskEngine.union(values).signum());
+            bench("PIEMaskEngine.unionSequential n=" + n, () -> sink += PIEMaskEngine.unionSequential(values).signum());
+            PIEPlan plan = PIEPlan.prepare(names);
+            bench("PIEPlan.evaluate n=" + n, () -> sink += plan.evaluate(values));
+            if (n <= 12) {
+                int rows = 1024;
+                long[] batch = new long[rows * values.length];
+                for (int r = 0; r < rows; r++) System.arraycopy(values, 0, batch, r * values.length, values.length);
+                long[] results = new long[rows];
+                bench("PIEPlan.evaluate batch of " + rows + " n=" + n, () -> {
+                    plan.evaluate(batch, rows, results);
+                    sink += results[rows - 1];
+                });
+            }
+            if (n <= 18) {
+                // The String-keyed implementations are too slow to measure beyond n = 18
+                bench("piev4.inclusionExclusion(Map) n=" + n, () -> sink += piev4.inclusionExclusion(data, names).signum());
+                bench("pied2.inclusionExclusion n=" + n, () -> sink += pied2.inclusionExclusion(data, names).signum());
+                bench("userfriendlypied3.inclusionExclusion n=" + n,
+                        () -> sink += Objects.hashCode(userfriendlypied3.inclusionExclusion(data, names)));
+                bench("PIEINPUT.inclusionExclusion n=" + n, () -> sink += PIEINPUT.inclusionExclusion(data).signum());
+            }
+        }
+    }
+
+    // ----------- runSetBasedPIE intersection path, |S| = 1e3 .. 1e7 -----------
+    private static void intersectionBenchmarks() {
+        Random random = new Random(7);
+        int sets = 4;
+        for (int size = 1_000; size <= 10_000_000; size *= 10) {
+            for (PIESetBackend backend : PIESetBackend.values()) {
+                if (backend == PIESetBackend.HASH && size > 1_000_000) continue; // does not fit a default heap
+                List<PIESet> setsList = new ArrayList<>();
+                for (int s = 0; s < sets; s++) {
+                    PIESet set = backend.create();
+                    for (int i = 0; i < size; i++) set.add(random.nextInt(size * 2));
+                    setsList.add(set);
+                }
+                bench("PIELattice " + backend + " sets=" + sets + " |S|=" + size,
+                        () -> sink += PIELattice.intersectionSizes(setsList)[(1 << sets) - 1]);
+                bench("PIEBitmap.orAll " + backend + " sets=" + sets + " |S|=" + size,
+                        () -> sink += PIEBitmap.orAll(setsList).cardinality());
+            }
+        }
+    }
+
+    // ----------- Intersection of a small set with a 1000x larger one -----------
+    private static void skewedIntersectionBenchmarks() {
+        Random random = new Random(11);
+        int small = 1_000;
+        int large = 1_000_000;
+        for (PIESetBackend backend : PIESetBackend.values()) {
+            PIESet a = backend.create();
+            PIESet b = backend.create();
+            for (int i = 0; i < small; i++) a.add(random.nextInt(large * 2));
+            for (int i = 0; i < large; i++) b.add(random.nextInt(large * 2));
+            bench("skewed and " + backend + " |A|=" + small + " |B|=" + large,
+                    () -> sink += a.and(b).cardinality());
+            bench("skewed andCardinality " + backend + " |A|=" + small + " |B|=" + large,
+                    () -> sink += a.andCardinality(b));
+        }
+    }
+
+    // ----------- Columnar rows vs one PIEPlan.evaluate per row, n = 3 -----------
+    private static void columnarBenchmarks() {
+        Random random = new Random(5);
+        String[] names = {"Action", "Comedy", "Drama"};
+        PIEColumns columns = PIEColumns.prepare(names);
+        PIEPlan plan = PIEPlan.prepare(names);
+        for (int rows = 10_000; rows <= 1_000_000; rows *= 10) {
+            final int count = rows;
+            long[][] data = new long[columns.width()][rows];
+            long[] rowMajor = new long[rows * columns.width()];
+            long[] regions = new long[columns.width()];
+            for (int r = 0; r < rows; r++) {
+                for (int mask = 1; mask < regions.length; mask++) regions[mask] = random.nextInt(1000);
+                long[] values = PIERegions.intersections(regions);
+                for (int mask = 1; mask < values.length; mask++) {
+                    data[mask][r] = values[mask];
+                    rowMajor[r * values.length + mask] = values[mask];
+                }
+            }
+            long[] results = new long[rows];
+            bench("PIEColumns.union rows=" + rows, () -> {
+                columns.union(data, count, results);
+                sink += results[count - 1];
+            });
+            bench("PIEPlan.evaluate per row rows=" + rows, () -> {
+                plan.evaluate(rowMajor, count, results);
+                sink += results[count - 1];
+            });
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) filter = args[0];
+
+        // Silence the step output of the implementations under test
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Logger.getLogger("").setLevel(Level.OFF);
+
+        OUT.printf("%-48s %20s %21s %18s%n", "benchmark", "throughput", "allocation", "latency");
+        subsetBenchmarks();
+        inclusionExclusionBenchmarks();
+        intersectionBenchmarks();
+        skewedIntersectionBenchmarks();
+        columnarBenchmarks();
+        OUT.println("sink " + sink);
+    }
+}
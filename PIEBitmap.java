@@ -0,0 +1,850 @@
+package src;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * PIEBitmap - compressed bitmap set of ints in the Roaring layout.
+ * Each value is split into its high 16 bits (chunk key) and low 16 bits. A chunk is
+ * stored as a sorted char array when sparse, a 1024-word bitmap when dense, or a list
+ * of runs when that is smaller. Set operations work chunk by chunk and reduce to
+ * word-wise AND / OR / ANDNOT on dense chunks.
+ */
+public final class PIEBitmap implements PIESet {
+
+    // An array chunk with more values than this is stored as a bitmap instead
+    static final int ARRAY_MAX = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public PIEBitmap() {
+        this.keys = new char[4];
+        this.containers = new Container[4];
+    }
+
+    private PIEBitmap(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    public static PIEBitmap of(int... values) {
+        PIEBitmap bitmap = new PIEBitmap();
+        for (int value : values) bitmap.add(value);
+        return bitmap;
+    }
+
+    // ----------- View any PIESet as a bitmap (no copy if it already is one) -----------
+    static PIEBitmap asBitmap(PIESet set) {
+        if (set instanceof PIEBitmap bitmap) return bitmap;
+        PIEBitmap bitmap = new PIEBitmap();
+        set.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    @Override
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int i = Arrays.binarySearch(keys, 0, size, high);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) value);
+        } else {
+            insert(-i - 1, high, new ArrayContainer().add((char) value));
+        }
+    }
+
+    @Override
+    public boolean contains(int value) {
+        int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    @Override
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) total += containers[i].cardinality();
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // ----------- Intersection: only chunks present on both sides -----------
+    @Override
+    public PIEBitmap and(PIESet other) {
+        if (!(other instanceof PIEBitmap)) {
+            // let the other representation drive: it can test membership against this bitmap
+            return asBitmap(other.and(this));
+        }
+        PIEBitmap b = (PIEBitmap) other;
+        PIEBitmap result = new PIEBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < b.size) {
+            if (keys[i] == b.keys[j]) {
+                result.appendNonEmpty(keys[i], and(containers[i], b.containers[j]));
+                i++;
+                j++;
+            } else if (keys[i] < b.keys[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // ----------- |this ∩ other|: the same chunk walk, counting instead of building -----------
+    @Override
+    public long andCardinality(PIESet other) {
+        if (!(other instanceof PIEBitmap)) return other.andCardinality(this);
+        PIEBitmap b = (PIEBitmap) other;
+        long total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < b.size) {
+            if (keys[i] == b.keys[j]) {
+                total += andCardinality(containers[i], b.containers[j]);
+                i++;
+                j++;
+            } else if (keys[i] < b.keys[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return total;
+    }
+
+    // ----------- Union: merge chunk keys, OR shared chunks -----------
+    @Override
+    public PIEBitmap or(PIESet other) {
+        if (!(other instanceof PIEBitmap)) {
+            // copy only this side's chunks; the other set is streamed in, not materialised twice
+            PIEBitmap result = copy();
+            other.forEach(result::add);
+            return result;
+        }
+        PIEBitmap b = (PIEBitmap) other;
+        PIEBitmap result = new PIEBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < b.size) {
+            if (j >= b.size || (i < size && keys[i] < b.keys[j])) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || b.keys[j] < keys[i]) {
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], or(containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // ----------- Union of many sets in one merged pass over their chunks -----------
+    public static PIEBitmap orAll(Collection<? extends PIESet> sets) {
+        List<PIEBitmap> bitmaps = new ArrayList<>(sets.size());
+        for (PIESet set : sets) bitmaps.add(asBitmap(set));
+
+        PIEBitmap result = new PIEBitmap();
+        int[] pos = new int[bitmaps.size()];
+        long[] words = new long[BITMAP_WORDS];
+        while (true) {
+            // next smallest chunk key among all inputs
+            int key = Integer.MAX_VALUE;
+            for (int s = 0; s < bitmaps.size(); s++) {
+                PIEBitmap b = bitmaps.get(s);
+                if (pos[s] < b.size) key = Math.min(key, b.keys[pos[s]]);
+            }
+            if (key == Integer.MAX_VALUE) return result;
+
+            Container first = null;
+            int matches = 0;
+            for (int s = 0; s < bitmaps.size(); s++) {
+                PIEBitmap b = bitmaps.get(s);
+                if (pos[s] < b.size && b.keys[pos[s]] == key) {
+                    Container c = b.containers[pos[s]++];
+                    if (matches == 1) first.orInto(words);
+                    if (matches >= 1) c.orInto(words);
+                    else first = c;
+                    matches++;
+                }
+            }
+            if (matches == 1) {
+                result.append((char) key, first.copy());
+            } else {
+                int card = 0;
+                for (long word : words) card += Long.bitCount(word);
+                result.append((char) key, new BitmapContainer(words.clone(), card).shrink());
+                Arrays.fill(words, 0);
+            }
+        }
+    }
+
+    // ----------- |∪ sets|: orAll's merged pass without keeping the chunks -----------
+    public static long orAllCardinality(Collection<? extends PIESet> sets) {
+        List<PIEBitmap> bitmaps = new ArrayList<>(sets.size());
+        for (PIESet set : sets) bitmaps.add(asBitmap(set));
+
+        long total = 0;
+        int[] pos = new int[bitmaps.size()];
+        long[] words = new long[BITMAP_WORDS];
+        while (true) {
+            int key = Integer.MAX_VALUE;
+            for (int s = 0; s < bitmaps.size(); s++) {
+                PIEBitmap b = bitmaps.get(s);
+                if (pos[s] < b.size) key = Math.min(key, b.keys[pos[s]]);
+            }
+            if (key == Integer.MAX_VALUE) return total;
+
+            Container first = null;
+            int matches = 0;
+            for (int s = 0; s < bitmaps.size(); s++) {
+                PIEBitmap b = bitmaps.get(s);
+                if (pos[s] < b.size && b.keys[pos[s]] == key) {
+                    Container c = b.containers[pos[s]++];
+                    if (matches == 1) first.orInto(words);
+                    if (matches >= 1) c.orInto(words);
+                    else first = c;
+                    matches++;
+                }
+            }
+            if (matches == 1) {
+                total += first.cardinality();
+            } else {
+                for (long word : words) total += Long.bitCount(word);
+                Arrays.fill(words, 0);
+            }
+        }
+    }
+
+    /**
+     * Copy-on-write add: returns a new bitmap holding this set plus values[0 .. count).
+     * Chunks that receive no value are shared with this bitmap, not copied, so neither
+     * bitmap may be modified with add() afterwards; only the touched chunks are copied.
+     * When every value falls in an existing chunk the key array is shared as well.
+     */
+    PIEBitmap withAdded(int[] values, int count) {
+        // unsigned order, so values of one chunk are contiguous and chunks come in key order
+        int[] sorted = new int[count];
+        for (int k = 0; k < count; k++) sorted[k] = values[k] ^ Integer.MIN_VALUE;
+        Arrays.sort(sorted);
+        for (int k = 0; k < count; k++) sorted[k] ^= Integer.MIN_VALUE;
+
+        PIEBitmap inPlace = withAddedToExistingChunks(sorted);
+        if (inPlace != null) return inPlace;
+
+        PIEBitmap result = new PIEBitmap();
+        int i = 0;
+        int k = 0;
+        while (i < size || k < count) {
+            char high = k < count ? (char) (sorted[k] >>> 16) : Character.MAX_VALUE;
+            if (k == count || (i < size && keys[i] < high)) {
+                result.append(keys[i], containers[i]); // untouched: shared
+                i++;
+                continue;
+            }
+            Container container;
+            if (i < size && keys[i] == high) {
+                container = containers[i++].copy();
+            } else {
+                container = new ArrayContainer();
+            }
+            while (k < count && (char) (sorted[k] >>> 16) == high) {
+                container = container.add((char) sorted[k++]);
+            }
+            result.append(high, container);
+        }
+        return result;
+    }
+
+    // Same keys, copies of only the touched chunks; null if some value needs a new chunk
+    private PIEBitmap withAddedToExistingChunks(int[] sorted) {
+        int[] found = new int[sorted.length];
+        int touched = 0;
+        for (int k = 0; k < sorted.length; ) {
+            char high = (char) (sorted[k] >>> 16);
+            int i = Arrays.binarySearch(keys, 0, size, high);
+            if (i < 0) return null;
+            found[touched++] = i;
+            while (k < sorted.length && (char) (sorted[k] >>> 16) == high) k++;
+        }
+
+        Container[] next = containers.clone();
+        int k = 0;
+        for (int t = 0; t < touched; t++) {
+            int i = found[t];
+            Container container = containers[i].copy();
+            while (k < sorted.length && (char) (sorted[k] >>> 16) == keys[i]) {
+                container = container.add((char) sorted[k++]);
+            }
+            next[i] = container;
+        }
+        return new PIEBitmap(keys, next, size);
+    }
+
+    // ----------- Difference: chunks of this set minus matching chunks of other -----------
+    @Override
+    public PIEBitmap andNot(PIESet other) {
+        if (!(other instanceof PIEBitmap)) {
+            // keep what the other set does not contain, without building a bitmap of it
+            PIEBitmap result = new PIEBitmap();
+            forEach(value -> {
+                if (!other.contains(value)) result.add(value);
+            });
+            return result;
+        }
+        PIEBitmap b = (PIEBitmap) other;
+        PIEBitmap result = new PIEBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < b.size && b.keys[j] < keys[i]) j++;
+            if (j < b.size && b.keys[j] == keys[i]) {
+                result.appendNonEmpty(keys[i], andNot(containers[i], b.containers[j]));
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) containers[i].forEach(keys[i] << 16, action);
+    }
+
+    // ----------- Independent copy, chunk by chunk -----------
+    PIEBitmap copy() {
+        PIEBitmap result = new PIEBitmap();
+        for (int i = 0; i < size; i++) result.append(keys[i], containers[i].copy());
+        return result;
+    }
+
+    // ----------- Re-encode chunks as runs wherever that is smaller -----------
+    public void runOptimize() {
+        for (int i = 0; i < size; i++) containers[i] = containers[i].runOptimize();
+    }
+
+    // ----------- Approximate heap footprint of the chunk data -----------
+    public long sizeInBytes() {
+        long bytes = 3L * size;
+        for (int i = 0; i < size; i++) bytes += containers[i].sizeInBytes();
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(value -> {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(value);
+        });
+        return sb.append(']').toString();
+    }
+
+    private void insert(int at, char key, Container container) {
+        ensureCapacity();
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = key;
+        containers[at] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        ensureCapacity();
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void appendNonEmpty(char key, Container container) {
+        if (container.cardinality() > 0) append(key, container);
+    }
+
+    private void ensureCapacity() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    // ----------- Pairwise chunk operations -----------
+    private static Container and(Container a, Container b) {
+        Container x = a.plain();
+        Container y = b.plain();
+        if (x instanceof ArrayContainer ax) {
+            return y instanceof ArrayContainer ay ? ax.and(ay) : ax.filter((BitmapContainer) y, true);
+        }
+        BitmapContainer bx = (BitmapContainer) x;
+        return y instanceof ArrayContainer ay ? ay.filter(bx, true) : bx.and((BitmapContainer) y);
+    }
+
+    private static int andCardinality(Container a, Container b) {
+        Container x = a.plain();
+        Container y = b.plain();
+        if (x instanceof ArrayContainer ax) {
+            return y instanceof ArrayContainer ay ? ax.andCardinality(ay) : ax.countIn((BitmapContainer) y);
+        }
+        BitmapContainer bx = (BitmapContainer) x;
+        return y instanceof ArrayContainer ay ? ay.countIn(bx) : bx.andCardinality((BitmapContainer) y);
+    }
+
+    private static Container or(Container a, Container b) {
+        Container x = a.plain();
+        Container y = b.plain();
+        if (x instanceof ArrayContainer ax) {
+            return y instanceof ArrayContainer ay ? ax.or(ay) : ((BitmapContainer) y).or(ax);
+        }
+        BitmapContainer bx = (BitmapContainer) x;
+        return y instanceof ArrayContainer ay ? bx.or(ay) : bx.or((BitmapContainer) y);
+    }
+
+    private static Container andNot(Container a, Container b) {
+        Container x = a.plain();
+        Container y = b.plain();
+        if (x instanceof ArrayContainer ax) {
+            return y instanceof ArrayContainer ay ? ax.andNot(ay) : ax.filter((BitmapContainer) y, false);
+        }
+        BitmapContainer bx = (BitmapContainer) x;
+        return y instanceof ArrayContainer ay ? bx.andNot(ay) : bx.andNot((BitmapContainer) y);
+    }
+
+    /**
+     * One 2^16-value chunk. Containers returned from set operations are always new
+     * objects, so inputs are never modified; add() may return a different container type.
+     */
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract Container copy();
+
+        abstract int sizeInBytes();
+
+        // Array or bitmap form of this chunk, used by the set operations
+        abstract Container plain();
+
+        abstract int runCount();
+
+        // OR this chunk's bits into a 1024-word buffer
+        abstract void orInto(long[] words);
+
+        Container runOptimize() {
+            int runs = runCount();
+            return 2 + 4 * runs < sizeInBytes() ? RunContainer.from(this, runs) : this;
+        }
+    }
+
+    // ----------- Sparse chunk: sorted low halves -----------
+    private static final class ArrayContainer extends Container {
+        private char[] content;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] content, int cardinality) {
+            this.content = content;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(content, 0, cardinality, value);
+            if (i >= 0) return this;
+            if (cardinality == ARRAY_MAX) return toBitmap().add(value);
+            i = -i - 1;
+            if (cardinality == content.length) {
+                content = Arrays.copyOf(content, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(content, i, content, i + 1, cardinality - i);
+            content[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(content, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) action.accept(high | content[i]);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(content, cardinality), cardinality);
+        }
+
+        @Override
+        int sizeInBytes() {
+            return 2 * cardinality;
+        }
+
+        @Override
+        Container plain() {
+            return this;
+        }
+
+        @Override
+        int runCount() {
+            int runs = cardinality == 0 ? 0 : 1;
+            for (int i = 1; i < cardinality; i++) {
+                if (content[i] != content[i - 1] + 1) runs++;
+            }
+            return runs;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < cardinality; i++) words[content[i] >>> 6] |= 1L << content[i];
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) bitmap.add(content[i]);
+            return bitmap;
+        }
+
+        // Values of this chunk that are (keep = true) or are not (keep = false) in the bitmap
+        ArrayContainer filter(BitmapContainer other, boolean keep) {
+            char[] out = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(content[i]) == keep) out[n++] = content[i];
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        // Merge, or galloping search when one chunk is much sparser than the other
+        ArrayContainer and(ArrayContainer other) {
+            char[] out = new char[Math.min(cardinality, other.cardinality)];
+            int n = PIESortedArrays.intersect(content, cardinality, other.content, other.cardinality, out);
+            return new ArrayContainer(out, n);
+        }
+
+        int andCardinality(ArrayContainer other) {
+            return PIESortedArrays.intersectionSize(content, cardinality, other.content, other.cardinality);
+        }
+
+        // Values of this chunk that are in the bitmap
+        int countIn(BitmapContainer other) {
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(content[i])) n++;
+            }
+            return n;
+        }
+
+        Container or(ArrayContainer other) {
+            if (cardinality + other.cardinality > ARRAY_MAX) {
+                return toBitmap().or(other);
+            }
+            char[] out = new char[cardinality + other.cardinality];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j >= other.cardinality || (i < cardinality && content[i] < other.content[j])) {
+                    out[n++] = content[i++];
+                } else if (i >= cardinality || other.content[j] < content[i]) {
+                    out[n++] = other.content[j++];
+                } else {
+                    out[n++] = content[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        ArrayContainer andNot(ArrayContainer other) {
+            char[] out = new char[cardinality];
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < cardinality; i++) {
+                while (j < other.cardinality && other.content[j] < content[i]) j++;
+                if (j >= other.cardinality || other.content[j] != content[i]) out[n++] = content[i];
+            }
+            return new ArrayContainer(out, n);
+        }
+    }
+
+    // ----------- Dense chunk: 65536 bits in 1024 words -----------
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        int sizeInBytes() {
+            return 8 * BITMAP_WORDS;
+        }
+
+        @Override
+        Container plain() {
+            return this;
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            long carry = 0; // top bit of the previous word
+            for (long word : words) {
+                runs += Long.bitCount(word & ~((word << 1) | carry));
+                carry = word >>> 63;
+            }
+            return runs;
+        }
+
+        @Override
+        void orInto(long[] out) {
+            for (int w = 0; w < BITMAP_WORDS; w++) out[w] |= words[w];
+        }
+
+        // Shrink back to an array chunk when sparse enough
+        Container shrink() {
+            if (cardinality > ARRAY_MAX) return this;
+            char[] out = new char[cardinality];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    out[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        Container and(BitmapContainer other) {
+            long[] out = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                out[w] = words[w] & other.words[w];
+                card += Long.bitCount(out[w]);
+            }
+            return new BitmapContainer(out, card).shrink();
+        }
+
+        int andCardinality(BitmapContainer other) {
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) card += Long.bitCount(words[w] & other.words[w]);
+            return card;
+        }
+
+        Container or(BitmapContainer other) {
+            long[] out = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                out[w] = words[w] | other.words[w];
+                card += Long.bitCount(out[w]);
+            }
+            return new BitmapContainer(out, card);
+        }
+
+        Container or(ArrayContainer other) {
+            BitmapContainer out = (BitmapContainer) copy();
+            for (int i = 0; i < other.cardinality; i++) out.add(other.content[i]);
+            return out;
+        }
+
+        Container andNot(BitmapContainer other) {
+            long[] out = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                out[w] = words[w] & ~other.words[w];
+                card += Long.bitCount(out[w]);
+            }
+            return new BitmapContainer(out, card).shrink();
+        }
+
+        Container andNot(ArrayContainer other) {
+            long[] out = words.clone();
+            int card = cardinality;
+            for (int i = 0; i < other.cardinality; i++) {
+                char value = other.content[i];
+                long bit = 1L << value;
+                if ((out[value >>> 6] & bit) != 0) {
+                    out[value >>> 6] &= ~bit;
+                    card--;
+                }
+            }
+            return new BitmapContainer(out, card).shrink();
+        }
+    }
+
+    // ----------- Run chunk: (start, length - 1) pairs -----------
+    private static final class RunContainer extends Container {
+        private final char[] runs;
+        private final int runCount;
+        private final int cardinality;
+
+        private RunContainer(char[] runs, int runCount, int cardinality) {
+            this.runs = runs;
+            this.runCount = runCount;
+            this.cardinality = cardinality;
+        }
+
+        static RunContainer from(Container source, int runCount) {
+            char[] runs = new char[2 * runCount];
+            int[] state = {0, -2}; // {runs written, last value}
+            source.forEach(0, value -> {
+                int r = state[0];
+                if (value == state[1] + 1) {
+                    runs[2 * r - 1]++;
+                } else {
+                    runs[2 * r] = (char) value;
+                    runs[2 * r + 1] = 0;
+                    state[0] = r + 1;
+                }
+                state[1] = value;
+            });
+            return new RunContainer(runs, runCount, source.cardinality());
+        }
+
+        @Override
+        Container add(char value) {
+            return contains(value) ? this : plain().add(value);
+        }
+
+        @Override
+        boolean contains(char value) {
+            int lo = 0;
+            int hi = runCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int start = runs[2 * mid];
+                if (value < start) {
+                    hi = mid - 1;
+                } else if (value > start + runs[2 * mid + 1]) {
+                    lo = mid + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int r = 0; r < runCount; r++) {
+                int start = runs[2 * r];
+                int end = start + runs[2 * r + 1];
+                for (int v = start; v <= end; v++) action.accept(high | v);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return this; // never modified in place
+        }
+
+        @Override
+        int sizeInBytes() {
+            return 2 + 4 * runCount;
+        }
+
+        @Override
+        Container plain() {
+            Container out = cardinality > ARRAY_MAX ? new BitmapContainer() : new ArrayContainer();
+            for (int r = 0; r < runCount; r++) {
+                int start = runs[2 * r];
+                int end = start + runs[2 * r + 1];
+                for (int v = start; v <= end; v++) out = out.add((char) v);
+            }
+            return out;
+        }
+
+        @Override
+        int runCount() {
+            return runCount;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int r = 0; r < runCount; r++) {
+                int start = runs[2 * r];
+                int end = start + runs[2 * r + 1];
+                for (int v = start; v <= end; v++) words[v >>> 6] |= 1L << v;
+            }
+        }
+
+        @Override
+        Container runOptimize() {
+            return this;
+        }
+    }
+}
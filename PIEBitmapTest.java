@@ -0,0 +1,148 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests: PIEBitmap (array, bitmap and run chunks) against HashPIESet,
+ * plus the PIESortedArrays kernels against a java.util reference.
+ */
+class PIEBitmapTest {
+
+    // Shapes that hit every container kind: sparse arrays, dense bitmaps, runs, chunk edges, negatives
+    private static PIESet[] randomPair(Random random, PIESet a, PIESet b) {
+        fill(random, a);
+        fill(random, b);
+        return new PIESet[] {a, b};
+    }
+
+    private static void fill(Random random, PIESet set) {
+        switch (random.nextInt(5)) {
+            case 0 -> {
+                for (int i = 0; i < random.nextInt(200); i++) set.add(random.nextInt());
+            }
+            case 1 -> {
+                for (int i = 0; i < 20_000; i++) set.add(random.nextInt(1 << 17));
+            }
+            case 2 -> {
+                int start = random.nextInt(1 << 18) - (1 << 17);
+                for (int i = 0; i < random.nextInt(100_000); i++) set.add(start + i);
+            }
+            case 3 -> {
+                for (int i = 0; i < 5_000; i++) set.add(((random.nextInt(8) - 4) << 16) | random.nextInt(8) - 4);
+            }
+            default -> {
+                for (int i = 0; i < 3_000; i++) set.add(random.nextInt(10_000) - 5_000);
+                set.add(Integer.MIN_VALUE);
+                set.add(Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private static PIEBitmap copy(PIESet source, boolean runOptimize) {
+        PIEBitmap bitmap = new PIEBitmap();
+        source.forEach(bitmap::add);
+        if (runOptimize) bitmap.runOptimize();
+        return bitmap;
+    }
+
+    private static Set<Integer> contents(PIESet set) {
+        Set<Integer> values = new HashSet<>();
+        set.forEach(values::add);
+        assertEquals(values.size(), set.cardinality(), "cardinality");
+        return values;
+    }
+
+    @Test
+    void operationsMatchHashSet() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            PIESet[] reference = randomPair(random, new HashPIESet(), new HashPIESet());
+            PIEBitmap a = copy(reference[0], random.nextBoolean());
+            PIEBitmap b = copy(reference[1], random.nextBoolean());
+
+            assertEquals(contents(reference[0]), contents(a));
+            assertEquals(contents(reference[0].and(reference[1])), contents(a.and(b)), "and");
+            assertEquals(contents(reference[0].or(reference[1])), contents(a.or(b)), "or");
+            assertEquals(contents(reference[0].andNot(reference[1])), contents(a.andNot(b)), "andNot");
+            assertEquals(reference[0].and(reference[1]).cardinality(), a.andCardinality(b), "andCardinality");
+            assertEquals(reference[0].or(reference[1]).cardinality(), a.orCardinality(b), "orCardinality");
+            assertEquals(reference[0].andNot(reference[1]).cardinality(), a.andNotCardinality(b), "andNotCardinality");
+            assertEquals(contents(reference[0].or(reference[1])), contents(PIEBitmap.orAll(List.of(a, b))), "orAll");
+            assertEquals(reference[0].or(reference[1]).cardinality(), PIEBitmap.orAllCardinality(List.of(a, b)));
+        }
+    }
+
+    @Test
+    void mixedRepresentationsMatchHashSet() {
+        Random random = new Random(2);
+        for (int round = 0; round < 100; round++) {
+            PIESet[] reference = randomPair(random, new HashPIESet(), new HashPIESet());
+            PIEBitmap a = copy(reference[0], false);
+            SortedArrayPIESet b = new SortedArrayPIESet();
+            reference[1].forEach(b::add);
+
+            assertEquals(contents(reference[0].and(reference[1])), contents(a.and(b)));
+            assertEquals(contents(reference[0].or(reference[1])), contents(a.or(b)));
+            assertEquals(contents(reference[0].andNot(reference[1])), contents(a.andNot(b)));
+            assertEquals(reference[0].and(reference[1]).cardinality(), a.andCardinality(b));
+            assertEquals(reference[0].and(reference[1]).cardinality(), b.andCardinality(a));
+        }
+    }
+
+    @Test
+    void containsAndWithAdded() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            HashPIESet reference = new HashPIESet();
+            fill(random, reference);
+            PIEBitmap bitmap = copy(reference, random.nextBoolean());
+            for (int i = 0; i < 1_000; i++) {
+                int probe = random.nextBoolean() ? random.nextInt() : random.nextInt(1 << 18) - (1 << 17);
+                assertEquals(reference.contains(probe), bitmap.contains(probe));
+            }
+
+            int[] added = new int[random.nextInt(500)];
+            int[] existing = new int[Math.toIntExact(bitmap.cardinality())];
+            int[] n = {0};
+            bitmap.forEach(value -> existing[n[0]++] = value);
+            boolean sameChunks = existing.length > 0 && random.nextBoolean(); // the shared-keys path
+            for (int i = 0; i < added.length; i++) {
+                added[i] = sameChunks ? existing[random.nextInt(existing.length)] & ~0xFFFF | random.nextInt(1 << 16)
+                        : random.nextInt(1 << 20) - (1 << 19);
+            }
+            PIEBitmap next = bitmap.withAdded(added, added.length);
+            Set<Integer> before = contents(bitmap);
+            Set<Integer> expected = new HashSet<>(before);
+            for (int value : added) expected.add(value);
+            assertEquals(expected, contents(next));
+            assertEquals(before, contents(bitmap), "withAdded must not change the original");
+        }
+    }
+
+    @Test
+    void sortedArrayKernelsMatchRetainAll() {
+        Random random = new Random(4);
+        for (int round = 0; round < 300; round++) {
+            // skewed sizes exercise the galloping path, similar sizes the merge
+            int[] a = sortedDistinct(random, random.nextInt(random.nextBoolean() ? 10 : 5_000), 20_000);
+            int[] b = sortedDistinct(random, random.nextInt(5_000), 20_000);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int value : a) expected.add(value);
+            Set<Integer> other = new HashSet<>();
+            for (int value : b) other.add(value);
+            expected.retainAll(other);
+
+            int[] actual = PIESortedArrays.intersect(a, b);
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual);
+            assertEquals(expected.size(), PIESortedArrays.intersectionSize(a, a.length, b, b.length));
+            assertArrayEquals(actual, PIESortedArrays.intersectAll(b, a, a));
+        }
+    }
+
+    private static int[] sortedDistinct(Random random, int size, int range) {
+        return random.ints(size, -range, range).distinct().sorted().toArray();
+    }
+}
@@ -0,0 +1,248 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PIECache - bounded LRU cache of union sizes, keyed by a canonical problem fingerprint.
+ * The fingerprint sorts the set names and re-indexes every intersection size by its
+ * mask over the sorted names, so the same problem given in another set order, key
+ * order or "B∩A" spelling maps to the same entry. Only non-zero sizes are kept, as
+ * sorted (mask, size) pairs, so a lookup costs the supplied keys and not 2^n. The bound
+ * is on the total number of stored names and pairs.
+ */
+public final class PIECache {
+
+    // Default bound: 2^22 stored pairs (about 50 MB of masks and sizes)
+    public static final long DEFAULT_MAX_WEIGHT = 1L << 22;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Fingerprint, PIETotal> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PIECache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    public PIECache(long maxWeight) {
+        if (maxWeight < 0) throw new IllegalArgumentException("Cache weight must not be negative: " + maxWeight);
+        this.maxWeight = maxWeight;
+    }
+
+    // ----------- |A ∪ B ∪ ...| through the cache -----------
+    public PIETotal union(long[] values, String[] setNames) {
+        Fingerprint key = Fingerprint.of(values, setNames);
+        PIETotal total = get(key);
+        if (total == null) {
+            // computed outside the lock; a concurrent miss on the same key just computes it twice
+            total = PIEMaskEngine.union(values);
+            put(key, total);
+        }
+        return total;
+    }
+
+    // The keyed form never builds the dense array: a miss sums the fingerprint's pairs
+    public PIETotal union(Map<String, ? extends Number> data, String[] setNames) {
+        return union(data, setNames, () -> { });
+    }
+
+    // onMiss runs before a problem not seen before is summed, e.g. to check its input
+    public PIETotal union(Map<String, ? extends Number> data, String[] setNames, Runnable onMiss) {
+        Fingerprint key = Fingerprint.of(data, setNames);
+        PIETotal total = get(key);
+        if (total == null) {
+            onMiss.run();
+            total = key.union();
+            put(key, total);
+        }
+        return total;
+    }
+
+    private synchronized PIETotal get(Fingerprint key) {
+        PIETotal total = entries.get(key);
+        if (total == null) misses.increment();
+        else hits.increment();
+        return total;
+    }
+
+    private synchronized void put(Fingerprint key, PIETotal total) {
+        if (key.weight() > maxWeight) return;
+        if (entries.put(key, total) == null) weight += key.weight();
+        Iterator<Fingerprint> eldest = entries.keySet().iterator();
+        while (weight > maxWeight) {
+            weight -= eldest.next().weight();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public String toString() {
+        long h = hits();
+        long m = misses();
+        double rate = h + m == 0 ? 0 : 100.0 * h / (h + m);
+        return String.format(Locale.ROOT, "hits=%d misses=%d hit rate=%.1f%% entries=%d evictions=%d",
+                h, m, rate, size(), evictions());
+    }
+
+    /**
+     * Canonical form of one problem: sorted set names plus the non-zero intersection sizes,
+     * as (mask, size) pairs sorted by their mask over the sorted names. Equal fingerprints
+     * have equal unions.
+     */
+    public static final class Fingerprint {
+        private final String[] names;
+        private final int[] masks;
+        private final long[] values;
+        private final int hash;
+
+        private Fingerprint(String[] names, int[] masks, long[] values) {
+            this.names = names;
+            this.masks = masks;
+            this.values = values;
+            this.hash = 31 * (31 * Arrays.hashCode(names) + Arrays.hashCode(masks)) + Arrays.hashCode(values);
+        }
+
+        // ----------- From a mask-indexed array: remap the non-zero entries -----------
+        public static Fingerprint of(long[] values, String[] setNames) {
+            int n = setNames.length;
+            if (n > PIEMaskEngine.MAX_SETS || values.length != 1 << n) {
+                throw new IllegalArgumentException("Expected " + (1L << n) + " values for " + n + " sets");
+            }
+            String[] sorted = sortedNames(setNames);
+            int[] position = positions(setNames, sorted);
+
+            int pairs = 0;
+            for (int mask = 1; mask < values.length; mask++) {
+                if (values[mask] != 0) pairs++;
+            }
+            long[] order = new long[pairs];
+            long[] found = new long[pairs];
+            pairs = 0;
+            for (int mask = 1; mask < values.length; mask++) {
+                if (values[mask] == 0) continue;
+                order[pairs] = (long) remap(mask, position) << 32 | pairs;
+                found[pairs++] = values[mask];
+            }
+            return sorted(sorted, order, found);
+        }
+
+        // ----------- From "A∩B" keys: parse each key straight into a canonical mask -----------
+        public static Fingerprint of(Map<String, ? extends Number> data, String[] setNames) {
+            int n = setNames.length;
+            if (n > PIEMaskEngine.MAX_SETS) {
+                throw new IllegalArgumentException("Too many sets for the cache: " + n + " > " + PIEMaskEngine.MAX_SETS);
+            }
+            String[] sorted = sortedNames(setNames);
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < n; i++) index.put(sorted[i], i);
+
+            long[] order = new long[data.size()];
+            long[] found = new long[data.size()];
+            int pairs = 0;
+            for (Map.Entry<String, ? extends Number> entry : data.entrySet()) {
+                int mask = PIEMaskEngine.maskOf(entry.getKey(), index);
+                order[pairs] = (long) mask << 32 | pairs;
+                found[pairs++] = entry.getValue().longValue();
+            }
+            return sorted(sorted, Arrays.copyOf(order, pairs), found);
+        }
+
+        // Sorts (mask << 32 | arrival) keys; of repeated masks the last one supplied wins, zeros are dropped
+        private static Fingerprint sorted(String[] names, long[] order, long[] found) {
+            Arrays.sort(order);
+            int[] masks = new int[order.length];
+            long[] values = new long[order.length];
+            int size = 0;
+            for (int k = 0; k < order.length; k++) {
+                int mask = (int) (order[k] >>> 32);
+                if (k + 1 < order.length && (int) (order[k + 1] >>> 32) == mask) continue;
+                long value = found[(int) order[k]];
+                if (value == 0) continue;
+                masks[size] = mask;
+                values[size++] = value;
+            }
+            return new Fingerprint(names, Arrays.copyOf(masks, size), Arrays.copyOf(values, size));
+        }
+
+        private static String[] sortedNames(String[] setNames) {
+            String[] sorted = new String[setNames.length];
+            for (int i = 0; i < sorted.length; i++) sorted[i] = setNames[i].strip();
+            Arrays.sort(sorted);
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i].equals(sorted[i - 1])) throw new IllegalArgumentException("Duplicate set name: " + sorted[i]);
+            }
+            return sorted;
+        }
+
+        // position of setNames[i] in the sorted order
+        private static int[] positions(String[] setNames, String[] sorted) {
+            int[] position = new int[setNames.length];
+            for (int i = 0; i < setNames.length; i++) position[i] = Arrays.binarySearch(sorted, setNames[i].strip());
+            return position;
+        }
+
+        private static int remap(int mask, int[] position) {
+            int target = 0;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                target |= 1 << position[Integer.numberOfTrailingZeros(bits)];
+            }
+            return target;
+        }
+
+        // Signed sum over the stored pairs; missing sizes are zero and add nothing
+        PIETotal union() {
+            long start = PIEMetrics.start();
+            PIETotal.Accumulator total = new PIETotal.Accumulator();
+            for (int k = 0; k < masks.length; k++) {
+                if ((Integer.bitCount(masks[k]) & 1) == 1) total.add(values[k]);
+                else total.subtract(values[k]);
+            }
+            PIEMetrics.record(PIEMetrics.Phase.SUM, start, masks.length);
+            return total.result();
+        }
+
+        // Number of stored names and pairs, the unit of the cache bound
+        long weight() {
+            return names.length + masks.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Fingerprint other)) return false;
+            return hash == other.hash && Arrays.equals(names, other.names) && Arrays.equals(masks, other.masks)
+                    && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
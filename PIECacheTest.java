@@ -0,0 +1,88 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+/** Cached unions against the dense engine, and fingerprint canonicalisation. */
+class PIECacheTest {
+
+    private static Map<String, Long> randomProblem(Random random, String[] names) {
+        Map<String, Long> data = new LinkedHashMap<>();
+        PIESubsets.Cursor subset = PIESubsets.cursor(names.length);
+        while (subset.next()) {
+            if (subset.size() > 1 && random.nextInt(3) == 0) continue; // missing keys count as 0
+            String key = PIEMaskEngine.key(subset.mask(), names);
+            data.put(key, random.nextInt(4) == 0 ? 0L : random.nextLong() >> random.nextInt(64));
+        }
+        return data;
+    }
+
+    @Test
+    void keyedAndDenseUnionsMatchTheEngine() {
+        Random random = new Random(9);
+        for (int round = 0; round < 200; round++) {
+            String[] names = new String[1 + random.nextInt(8)];
+            for (int i = 0; i < names.length; i++) names[i] = "S" + i;
+            Map<String, Long> data = randomProblem(random, names);
+            long[] dense = PIEMaskEngine.fromKeyedMap(data, names);
+            PIETotal expected = PIEMaskEngine.union(dense);
+
+            PIECache cache = new PIECache();
+            assertEquals(expected, cache.union(data, names));
+            assertEquals(expected, cache.union(dense, names));
+            assertEquals(1, cache.misses(), "keyed and dense forms share one entry");
+            assertEquals(1, cache.hits());
+        }
+    }
+
+    @Test
+    void reorderedProblemsHitTheSameEntry() {
+        PIECache cache = new PIECache();
+        Map<String, Long> first = new LinkedHashMap<>();
+        first.put("A", 10L);
+        first.put("B", 20L);
+        first.put("C", 30L);
+        first.put("A∩B", 5L);
+        first.put("A∩C", 0L);
+        Map<String, Long> second = new LinkedHashMap<>();
+        second.put(" C ", 30L);
+        second.put("B ∩ A", 5L);
+        second.put("B", 20L);
+        second.put("A", 10L);
+
+        PIETotal total = cache.union(first, new String[] {"A", "B", "C"});
+        assertEquals(total, cache.union(second, new String[] {" C ", "B", "A"}));
+        assertEquals(1, cache.hits());
+        assertEquals(55, total.longValue());
+    }
+
+    @Test
+    void missHookRunsOnlyOnMisses() {
+        PIECache cache = new PIECache();
+        int[] misses = {0};
+        Map<String, Long> data = Map.of("A", 3L, "B", 4L, "A∩B", 1L);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(6, cache.union(data, new String[] {"A", "B"}, () -> misses[0]++).longValue());
+        }
+        assertEquals(1, misses[0]);
+    }
+
+    @Test
+    void rejectsDuplicateNames() {
+        PIECache cache = new PIECache();
+        Map<String, Long> data = Map.of("A", 1L);
+        assertThrows(IllegalArgumentException.class, () -> cache.union(data, new String[] {"A", " A"}));
+        assertThrows(IllegalArgumentException.class, () -> cache.union(new long[4], new String[] {"A", "A "}));
+    }
+
+    @Test
+    void boundCountsStoredPairs() {
+        PIECache cache = new PIECache(5);
+        cache.union(Map.of("A", 1L, "B", 2L), new String[] {"A", "B"}); // 2 names + 2 pairs
+        cache.union(Map.of("C", 1L), new String[] {"C"}); // 1 + 1, 6 in all: the first is evicted
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.evictions());
+    }
+}
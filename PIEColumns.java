@@ -0,0 +1,189 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * PIEColumns - Inclusion-Exclusion for many rows over one fixed list of set names.
+ * The input is columnar: columns[mask][row] = |∩ sets in mask| for that row (for example
+ * one row per day of Action/Comedy/Drama counts). The union of every row is built by
+ * adding or subtracting whole columns into one result array: long[] += long[] / -= long[]
+ * passes. Built with the vector profile and run with --add-modules jdk.incubator.vector,
+ * those passes use the Vector API (PIEColumnsVector); otherwise the same loops run as plain
+ * Java, which C2 auto-vectorises. -Dpie.columns.vector=false forces the plain loops.
+ *
+ * Rows are processed in blocks that stay in cache while all 2^n - 1 columns are
+ * folded in; large inputs are split across the common fork-join pool by block.
+ * A null column counts as all zeros. Results are exact longs: a block whose values
+ * could overflow is redone with exact arithmetic and throws ArithmeticException.
+ */
+public final class PIEColumns {
+
+    // Rows folded together; 4096 longs = 32 KB of results stays in L1/L2 while columns stream past
+    private static final int BLOCK_ROWS = 1 << 12;
+
+    // Fewer rows than this are evaluated on the calling thread
+    public static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    // Folds one column into results[from, to) and returns the OR of the column's magnitudes
+    interface Kernel {
+        long fold(long[] column, boolean add, long[] results, int from, int to);
+    }
+
+    // The plain loops: the fallback, and the exact same arithmetic as the vector kernel
+    static final Kernel SCALAR = (column, add, results, from, to) -> {
+        if (add) {
+            for (int r = from; r < to; r++) results[r] += column[r];
+        } else {
+            for (int r = from; r < to; r++) results[r] -= column[r];
+        }
+        long magnitudes = 0;
+        for (int r = from; r < to; r++) magnitudes |= column[r] ^ (column[r] >> 63);
+        return magnitudes;
+    };
+
+    // PIEColumnsVector when it was compiled in and jdk.incubator.vector is resolved, else null
+    static final Kernel VECTOR = loadVectorKernel();
+
+    private final PIEPlan plan;
+    private final Kernel kernel;
+    private final boolean[] added; // true where the term of the mask is added, false where subtracted
+    private final int safeBits;    // terms below 2^safeBits in magnitude cannot overflow a row
+
+    private PIEColumns(PIEPlan plan, Kernel kernel) {
+        this.plan = plan;
+        this.kernel = kernel;
+        this.added = new boolean[plan.width()];
+        for (int mask = 1; mask < added.length; mask++) added[mask] = PIEMaskEngine.sign(mask) == 1;
+        this.safeBits = 62 - plan.setNames().length;
+    }
+
+    public static PIEColumns prepare(String... setNames) {
+        return prepare(VECTOR != null, setNames);
+    }
+
+    // vector = false picks the plain loops even where the Vector API is available (for comparisons)
+    static PIEColumns prepare(boolean vector, String... setNames) {
+        return new PIEColumns(PIEPlan.prepare(setNames), vector && VECTOR != null ? VECTOR : SCALAR);
+    }
+
+    private static Kernel loadVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("pie.columns.vector", "true"))) return null;
+        try {
+            return (Kernel) Class.forName("src.PIEColumnsVector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // built without the vector profile, or run without --add-modules jdk.incubator.vector
+        }
+    }
+
+    // True when union() folds columns with the Vector API
+    public boolean vectorized() {
+        return kernel != SCALAR;
+    }
+
+    // Number of columns, 2^n; column 0 is ignored
+    public int width() {
+        return added.length;
+    }
+
+    // Column index of "A∩B∩C" (any order)
+    public int slot(String key) {
+        return plan.slot(key);
+    }
+
+    // ----------- Keyed columns -> mask-indexed columns (arrays are shared, not copied) -----------
+    public long[][] columns(Map<String, long[]> data) {
+        long[][] columns = new long[width()][];
+        for (Map.Entry<String, long[]> entry : data.entrySet()) {
+            columns[slot(entry.getKey())] = entry.getValue();
+        }
+        return columns;
+    }
+
+    // ----------- |A ∪ B ∪ ...| of every row -----------
+    public long[] union(long[][] columns, int rows) {
+        long[] results = new long[rows];
+        union(columns, rows, results);
+        return results;
+    }
+
+    public void union(long[][] columns, int rows, long[] results) {
+        if (columns.length != width()) {
+            throw new IllegalArgumentException("Expected " + width() + " columns, got " + columns.length);
+        }
+        for (int mask = 1; mask < columns.length; mask++) {
+            if (columns[mask] != null && columns[mask].length < rows) {
+                throw new IllegalArgumentException("Column " + PIEMaskEngine.key(mask, plan.setNames())
+                        + " has " + columns[mask].length + " rows, expected " + rows);
+            }
+        }
+        if (results.length < rows) throw new IllegalArgumentException("Results hold fewer than " + rows + " rows");
+
+        long start = PIEMetrics.start();
+        if (rows < PARALLEL_THRESHOLD) {
+            unionRange(columns, 0, rows, results);
+        } else {
+            ForkJoinPool.commonPool().invoke(new RowTask(columns, 0, rows, results));
+        }
+        PIEMetrics.record(PIEMetrics.Phase.SUM, start, (long) rows * (width() - 1));
+    }
+
+    private void unionRange(long[][] columns, int from, int to, long[] results) {
+        for (int blockStart = from; blockStart < to; blockStart += BLOCK_ROWS) {
+            unionBlock(columns, blockStart, Math.min(to, blockStart + BLOCK_ROWS), results);
+        }
+    }
+
+    /**
+     * One block of rows, one column at a time. The add/subtract loops carry no
+     * branches or exact-arithmetic checks; the OR of all magnitudes decides
+     * afterwards whether the block has to be redone exactly.
+     */
+    private void unionBlock(long[][] columns, int from, int to, long[] results) {
+        Arrays.fill(results, from, to, 0);
+        long magnitudes = 0;
+        for (int mask = 1; mask < columns.length; mask++) {
+            long[] column = columns[mask];
+            if (column == null) continue;
+            magnitudes |= kernel.fold(column, added[mask], results, from, to);
+        }
+        if (magnitudes >>> safeBits == 0) return;
+
+        for (int r = from; r < to; r++) {
+            long total = 0;
+            for (int mask = 1; mask < columns.length; mask++) {
+                long[] column = columns[mask];
+                if (column == null) continue;
+                total = added[mask] ? Math.addExact(total, column[r]) : Math.subtractExact(total, column[r]);
+            }
+            results[r] = total;
+        }
+    }
+
+    // Splits [from, to) in halves down to a few blocks; every row is written by exactly one leaf
+    private final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[][] columns;
+        private final int from;
+        private final int to;
+        private final long[] results;
+
+        RowTask(long[][] columns, int from, int to, long[] results) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 4 * BLOCK_ROWS) {
+                unionRange(columns, from, to, results);
+                return;
+            }
+            int mid = from + ((to - from) / 2 / BLOCK_ROWS) * BLOCK_ROWS; // keep blocks aligned
+            invokeAll(new RowTask(columns, from, mid, results), new RowTask(columns, mid, to, results));
+        }
+    }
+}
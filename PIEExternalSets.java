@@ -0,0 +1,327 @@
+package src;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * PIEExternalSets - set operations on sets larger than the heap.
+ * Elements are collected per set in a bounded buffer; a full buffer is sorted,
+ * deduplicated and spilled to a temp file as one run. Before an operation each set's
+ * runs are merged into a single sorted file (at most MAX_FAN_IN runs at a time), and
+ * union, intersection, difference and complement are then one streaming k-way merge
+ * over those files. Results are iterators over the merge, so they can be written to
+ * a file or consumed element by element without ever being held in memory.
+ *
+ * Memory is fixed by the buffer size and IO_BUFFER_BYTES per open file, whatever the
+ * input size. Not thread-safe. close() deletes every temp file.
+ */
+public final class PIEExternalSets implements AutoCloseable {
+
+    // Elements buffered per set before a run is spilled (4 MB)
+    public static final int DEFAULT_RUN_VALUES = 1 << 20;
+
+    // Runs merged in one pass while compacting a set
+    private static final int MAX_FAN_IN = 64;
+
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private static final class SetFiles {
+        private final List<Path> runs = new ArrayList<>();
+        private int[] buffer;
+        private int size;
+    }
+
+    private final Path directory;
+    private final int runValues;
+    private final Map<String, SetFiles> sets = new LinkedHashMap<>();
+    private int nextRun;
+
+    private PIEExternalSets(Path directory, int runValues) {
+        this.directory = directory;
+        this.runValues = runValues;
+    }
+
+    // ----------- Sets spilled under a new temp directory -----------
+    public static PIEExternalSets create() throws IOException {
+        return create(DEFAULT_RUN_VALUES);
+    }
+
+    public static PIEExternalSets create(int runValues) throws IOException {
+        if (runValues <= 0) throw new IllegalArgumentException("Run size must be positive: " + runValues);
+        return new PIEExternalSets(Files.createTempDirectory("pie-sets"), runValues);
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(sets.keySet());
+    }
+
+    // ----------- Writers -----------
+
+    public void add(String name, int value) throws IOException {
+        SetFiles set = sets.computeIfAbsent(name, key -> new SetFiles());
+        if (set.buffer == null) set.buffer = new int[runValues];
+        set.buffer[set.size++] = value;
+        if (set.size == runValues) spill(set);
+    }
+
+    // Adds every whitespace- or comma-separated integer in a text file, streaming
+    public void load(String name, Path textFile) throws IOException {
+        sets.computeIfAbsent(name, key -> new SetFiles());
+        try (Reader in = Files.newBufferedReader(textFile, StandardCharsets.UTF_8)) {
+            long value = 0;
+            int digits = 0;
+            boolean negative = false;
+            for (int c = in.read(); ; c = in.read()) {
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    if (++digits > 10) throw new IllegalArgumentException("Not an int in " + textFile + ": too many digits");
+                } else if (c == '-' && digits == 0 && !negative) {
+                    negative = true;
+                } else if (c == -1 || c == ',' || Character.isWhitespace(c)) {
+                    if (digits > 0) {
+                        add(name, Math.toIntExact(negative ? -value : value));
+                    } else if (negative) {
+                        throw new IllegalArgumentException("Not an int in " + textFile + ": -");
+                    }
+                    if (c == -1) return;
+                    value = 0;
+                    digits = 0;
+                    negative = false;
+                } else {
+                    throw new IllegalArgumentException("Not an int in " + textFile + ": '" + (char) c + "'");
+                }
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Not an int in " + textFile + ": out of range", e);
+        }
+    }
+
+    // Buffer -> sorted, distinct run file
+    private void spill(SetFiles set) throws IOException {
+        int[] buffer = set.buffer;
+        Arrays.sort(buffer, 0, set.size);
+        Path run = newRun();
+        try (DataOutputStream out = output(run)) {
+            for (int i = 0; i < set.size; i++) {
+                if (i == 0 || buffer[i] != buffer[i - 1]) out.writeInt(buffer[i]);
+            }
+        }
+        set.runs.add(run);
+        set.size = 0;
+    }
+
+    // Spills what is buffered and merges the runs down to one file
+    private Path compact(SetFiles set) throws IOException {
+        if (set.size > 0 || set.runs.isEmpty()) spill(set);
+        set.buffer = null;
+        while (set.runs.size() > 1) {
+            List<Path> merged = new ArrayList<>();
+            for (int from = 0; from < set.runs.size(); from += MAX_FAN_IN) {
+                List<Path> group = set.runs.subList(from, Math.min(set.runs.size(), from + MAX_FAN_IN));
+                Path run = newRun();
+                try (Result union = new Result(group, (count, inFirst) -> true)) {
+                    union.writeBinary(run);
+                }
+                for (Path old : group) Files.delete(old);
+                merged.add(run);
+            }
+            set.runs.clear();
+            set.runs.addAll(merged);
+        }
+        return set.runs.get(0);
+    }
+
+    private Path newRun() {
+        return directory.resolve("run-" + nextRun++);
+    }
+
+    // ----------- Streaming operations; close the Result when done -----------
+
+    public Result union(String... names) throws IOException {
+        return new Result(files(Arrays.asList(names)), (count, inFirst) -> true);
+    }
+
+    public Result intersection(String... names) throws IOException {
+        int k = names.length;
+        return new Result(files(Arrays.asList(names)), (count, inFirst) -> count == k);
+    }
+
+    public Result difference(String first, String second) throws IOException {
+        return new Result(files(List.of(first, second)), (count, inFirst) -> inFirst && count == 1);
+    }
+
+    // Everything in some set but not in this one
+    public Result complement(String name) throws IOException {
+        List<String> order = new ArrayList<>();
+        order.add(name);
+        for (String other : sets.keySet()) {
+            if (!other.equals(name)) order.add(other);
+        }
+        return new Result(files(order), (count, inFirst) -> !inFirst);
+    }
+
+    private List<Path> files(List<String> names) throws IOException {
+        List<Path> files = new ArrayList<>(names.size());
+        for (String name : names) {
+            SetFiles set = sets.get(name);
+            if (set == null) throw new NoSuchElementException("No set named " + name);
+            files.add(compact(set));
+        }
+        return files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) Files.delete(file);
+        }
+        Files.delete(directory);
+        sets.clear();
+    }
+
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_BYTES));
+    }
+
+    // Which values of the merge belong to the result: count = inputs holding the value
+    @FunctionalInterface
+    private interface Rule {
+        boolean keep(int count, boolean inFirst);
+    }
+
+    /** One sorted, distinct run file read front to back. */
+    private static final class Run {
+        private final int input;
+        private final DataInputStream in;
+        private long remaining;
+        private int value;
+
+        Run(int input, Path file) throws IOException {
+            this.input = input;
+            this.remaining = Files.size(file) / Integer.BYTES;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_BYTES));
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) return false;
+            value = in.readInt();
+            remaining--;
+            return true;
+        }
+    }
+
+    /**
+     * Ascending, distinct elements of an operation, produced lazily by a k-way merge of
+     * the input files. I/O errors surface as UncheckedIOException from hasNext()/nextInt().
+     */
+    public static final class Result implements PrimitiveIterator.OfInt, AutoCloseable {
+        private final List<Run> runs = new ArrayList<>();
+        private final PriorityQueue<Run> heads = new PriorityQueue<>((a, b) -> Integer.compare(a.value, b.value));
+        private final Rule rule;
+        private boolean ready;
+        private int next;
+
+        private Result(List<Path> files, Rule rule) throws IOException {
+            this.rule = rule;
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    Run run = new Run(i, files.get(i));
+                    runs.add(run);
+                    if (run.advance()) heads.add(run);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!ready && !heads.isEmpty()) {
+                    int value = heads.peek().value;
+                    int count = 0;
+                    boolean inFirst = false;
+                    while (!heads.isEmpty() && heads.peek().value == value) {
+                        Run run = heads.poll();
+                        count++;
+                        inFirst |= run.input == 0;
+                        if (run.advance()) heads.add(run);
+                    }
+                    if (rule.keep(count, inFirst)) {
+                        next = value;
+                        ready = true;
+                    }
+                }
+                return ready;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return next;
+        }
+
+        // Drains the result; returns the number of elements
+        public long forEach(IntConsumer action) {
+            long count = 0;
+            while (hasNext()) {
+                action.accept(nextInt());
+                count++;
+            }
+            return count;
+        }
+
+        // Drains the result into a text file, one element per line; returns the number of elements
+        public long writeText(Path file) throws IOException {
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                return forEach(value -> {
+                    try {
+                        out.write(Integer.toString(value));
+                        out.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void writeBinary(Path file) throws IOException {
+            try (DataOutputStream out = output(file)) {
+                forEach(value -> {
+                    try {
+                        out.writeInt(value);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Run run : runs) {
+                try {
+                    run.in.close();
+                } catch (IOException e) {
+                    if (failure == null) failure = e; else failure.addSuppressed(e);
+                }
+            }
+            runs.clear();
+            heads.clear();
+            if (failure != null) throw failure;
+        }
+    }
+}
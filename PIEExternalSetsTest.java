@@ -0,0 +1,82 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** The spilled k-way merges against TreeSet, with tiny runs so every set spans many files. */
+class PIEExternalSetsTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Integer> drain(PIEExternalSets.Result result) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        try (result) {
+            while (result.hasNext()) values.add(result.nextInt());
+        }
+        return values;
+    }
+
+    @Test
+    void operationsMatchTreeSet() throws IOException {
+        Random random = new Random(8);
+        for (int round = 0; round < 10; round++) {
+            List<TreeSet<Integer>> reference = new ArrayList<>();
+            // runs of 1 .. 50 values: hundreds of runs per set, so compaction needs several passes
+            try (PIEExternalSets sets = PIEExternalSets.create(1 + random.nextInt(50))) {
+                for (int s = 0; s < 3; s++) {
+                    TreeSet<Integer> set = new TreeSet<>();
+                    for (int i = 0; i < random.nextInt(10_000); i++) {
+                        int value = random.nextInt(20_000) - 10_000;
+                        set.add(value);
+                        sets.add("S" + s, value);
+                    }
+                    set.add(Integer.MIN_VALUE + s);
+                    sets.add("S" + s, Integer.MIN_VALUE + s);
+                    reference.add(set);
+                }
+
+                TreeSet<Integer> union = new TreeSet<>();
+                reference.forEach(union::addAll);
+                TreeSet<Integer> intersection = new TreeSet<>(reference.get(0));
+                reference.forEach(intersection::retainAll);
+                TreeSet<Integer> difference = new TreeSet<>(reference.get(0));
+                difference.removeAll(reference.get(1));
+                TreeSet<Integer> complement = new TreeSet<>(union);
+                complement.removeAll(reference.get(2));
+
+                assertEquals(new ArrayList<>(union), drain(sets.union("S0", "S1", "S2")));
+                assertEquals(new ArrayList<>(intersection), drain(sets.intersection("S0", "S1", "S2")));
+                assertEquals(new ArrayList<>(difference), drain(sets.difference("S0", "S1")));
+                assertEquals(new ArrayList<>(complement), drain(sets.complement("S2")));
+
+                // adds after an operation land in a new run and show up in the next one
+                sets.add("S0", 123_456);
+                reference.get(0).add(123_456);
+                assertEquals(new ArrayList<>(reference.get(0)), drain(sets.union("S0")));
+            }
+        }
+    }
+
+    @Test
+    void loadsTextAndWritesText() throws IOException {
+        Path input = directory.resolve("a.txt");
+        Files.writeString(input, "5 3,3\n-2147483648\t2147483647\n-7");
+        Path output = directory.resolve("out.txt");
+        try (PIEExternalSets sets = PIEExternalSets.create()) {
+            sets.load("a", input);
+            assertEquals(5, sets.union("a").writeText(output));
+        }
+        assertEquals(List.of("-2147483648", "-7", "3", "5", "2147483647"), Files.readAllLines(output));
+
+        Files.writeString(input, "1 2x");
+        try (PIEExternalSets sets = PIEExternalSets.create()) {
+            assertThrows(IllegalArgumentException.class, () -> sets.load("a", input));
+        }
+    }
+}
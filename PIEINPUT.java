@@ -1,77 +1,99 @@
- import java.util.*;
+package src;
+
+import java.util.*;
 
 public class PIEINPUT {
 
     // Method to calculate using Inclusion-Exclusion
 
-    public static int inclusionExclusion(Map<String, Integer> data) {
+    public static PIETotal inclusionExclusion(Map<String, ? extends Number> data) {
 
-        // Collect names of individual sets (no intersections)
+        // One pass over the keys: bucket every size by intersection depth (A = 1, A∩B = 2, ...)
 
         List<String> sets = new ArrayList<>();
-        for (String name : data.keySet()) {
-            if (!name.contains("∩")) {  // if it is not an intersection
-                sets.add(name);
+        PIETotal.Accumulator[] levelSums = new PIETotal.Accumulator[8]; // levelSums[k] = sum of all k-way sizes
+        int deepest = 3; // steps 1 to 3 are always shown
+
+        long start = PIEMetrics.start();
+        for (Map.Entry<String, ? extends Number> entry : data.entrySet()) {
+            int depth = depth(entry.getKey());
+            if (depth == 1) {
+                sets.add(entry.getKey());
+            }
+            if (depth >= levelSums.length) {
+                levelSums = Arrays.copyOf(levelSums, Math.max(depth + 1, 2 * levelSums.length));
             }
+            deepest = Math.max(deepest, depth);
+
+            if (levelSums[depth] == null) {
+                levelSums[depth] = new PIETotal.Accumulator();
+            }
+            levelSums[depth].add(entry.getValue().longValue());
         }
+        PIEMetrics.record(PIEMetrics.Phase.GENERATE, start, data.size());
 
-        int total = 0; // final result
+        PIETotal.Accumulator total = new PIETotal.Accumulator(); // final result, widens to BigInteger on overflow
 
         System.out.println("\nSolving Using the Principle of Inclusion and Exclusion");
         System.out.println("We have these sets: " + String.join(", ", sets) + "\n");
 
-        // STEP 1: Add all individual sets
-
-        int step1 = 0;
-        for (String s : sets) {
-            step1 += data.get(s);
+        // STEP k: add k-way intersections for odd k, subtract them for even k
+
+        start = PIEMetrics.start();
+        PIETotal[] steps = new PIETotal[deepest + 1];
+        PIETotal[] running = new PIETotal[deepest + 1]; // total after each step
+        for (int k = 1; k <= deepest; k++) {
+            PIETotal step = levelSums[k] != null ? levelSums[k].result() : PIETotal.ZERO;
+            if ((k & 1) == 1) total.add(step);
+            else total.subtract(step);
+            steps[k] = step;
+            running[k] = total.result();
         }
-        System.out.println("Step 1: Add sizes of individual sets = " + step1);
-        total = total + step1;
+        PIEMetrics.record(PIEMetrics.Phase.SUM, start, deepest);
 
-        // STEP 2: Subtract all pairwise intersections
-
-        int step2 = 0;
-        for (String name : data.keySet()) {
-
-            // check if it is an intersection of exactly 2 sets
-            
-            long count = name.chars().filter(ch -> ch == '∩').count();
-            if (count == 1) {
-                step2 += data.get(name);
+        List<String> zeroLevels = new ArrayList<>();
+        for (int k = 1; k <= deepest; k++) {
+            if (k > 3 && steps[k].signum() == 0) {
+                zeroLevels.add(k + "-way"); // nothing to add or subtract, so no step line
+                continue;
             }
-        }
-        total = total - step2;
-        System.out.println("Step 2: Subtract pairwise intersections = -" + step2 + " → " + total);
-
-        // STEP 3: Add all triple intersections
-        
-        int step3 = 0;
-        for (String name : data.keySet()) {
-            long count = name.chars().filter(ch -> ch == '∩').count();
-            if (count == 2) {  // intersection of 3 sets
-                step3 += data.get(name);
+            boolean add = (k & 1) == 1;
+            if (k == 1) {
+                System.out.println("Step 1: Add sizes of individual sets = " + steps[k]);
+            } else {
+                System.out.println("Step " + k + ": " + (add ? "Add " : "Subtract ") + levelName(k)
+                        + " = " + (add ? "+" : "-") + signed(steps[k]) + " → " + running[k]);
             }
         }
-        total = total + step3;
-        System.out.println("Step 3: Add triple intersections = +" + step3 + " → " + total);
 
-        // STEP 4: Subtract 4-way intersections (if they exist)
-
-        int step4 = 0;
-        for (String name : data.keySet()) {
-            long count = name.chars().filter(ch -> ch == '∩').count();
-            if (count == 3) {  // intersection of 4 sets
-                step4 += data.get(name);
-            }
-        }
-        if (step4 > 0) { // only if it exists
-            total = total - step4;
-            System.out.println("Step 4: Subtract 4-way intersections = -" + step4 + " → " + total);
+        if (!zeroLevels.isEmpty()) {
+            System.out.println("(" + String.join(", ", zeroLevels) + " intersections sum to 0; step not shown)");
         }
 
         System.out.println("Final Answer: Total elements in union = " + total);
-        return total;
+        return total.result();
+    }
+
+    // A negative level sum in parentheses, so "-" before it still reads as subtraction
+    private static String signed(PIETotal step) {
+        return step.signum() < 0 ? "(" + step + ")" : step.toString();
+    }
+
+    // Number of sets in a key: "A" = 1, "A∩B" = 2, ...
+    private static int depth(String key) {
+        int depth = 1;
+        for (int i = key.indexOf('∩'); i >= 0; i = key.indexOf('∩', i + 1)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static String levelName(int k) {
+        return switch (k) {
+            case 2 -> "pairwise intersections";
+            case 3 -> "triple intersections";
+            default -> k + "-way intersections";
+        };
     }
 
     // Example 1: Library Example (predefined data)
@@ -95,32 +117,32 @@ public class PIEINPUT {
 
     // Example 2: Movie Example (user input)
     public static void movieExample(Scanner sc) {
-        Map<String, Integer> data = new LinkedHashMap<>();
+        Map<String, Long> data = new LinkedHashMap<>();
 
         System.out.println("\n################ Example 2: Movie Preferences ################");
         System.out.println("Enter number of students who like each genre:");
 
         System.out.print("Action: ");
-        data.put("Action", sc.nextInt());
+        data.put("Action", sc.nextLong());
 
         System.out.print("Comedy: ");
-        data.put("Comedy", sc.nextInt());
+        data.put("Comedy", sc.nextLong());
 
         System.out.print("Drama: ");
-        data.put("Drama", sc.nextInt());
+        data.put("Drama", sc.nextLong());
 
         System.out.println("Now enter the intersections:");
         System.out.print("Action∩Comedy: ");
-        data.put("Action∩Comedy", sc.nextInt());
+        data.put("Action∩Comedy", sc.nextLong());
 
         System.out.print("Action∩Drama: ");
-        data.put("Action∩Drama", sc.nextInt());
+        data.put("Action∩Drama", sc.nextLong());
 
         System.out.print("Comedy∩Drama: ");
-        data.put("Comedy∩Drama", sc.nextInt());
+        data.put("Comedy∩Drama", sc.nextLong());
 
         System.out.print("Action∩Comedy∩Drama: ");
-        data.put("Action∩Comedy∩Drama", sc.nextInt());
+        data.put("Action∩Comedy∩Drama", sc.nextLong());
 
         inclusionExclusion(data);
     }
@@ -135,6 +157,9 @@ public class PIEINPUT {
         // Then run interactive example
         movieExample(sc);
 
+        if (PIEMetrics.ENABLED) {
+            System.out.println("Metrics:\n" + PIEMetrics.get().snapshot());
+        }
         sc.close();
     }
 }
\ No newline at end of file
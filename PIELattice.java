@@ -0,0 +1,49 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIELattice - sizes of every intersection of n sets, built incrementally.
+ * The intersection for a mask is derived from its parent (the mask without its highest
+ * bit) with a single AND, instead of re-intersecting all k member sets from scratch.
+ */
+public final class PIELattice {
+
+    // Prevent instantiation
+    private PIELattice() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Returns |∩ sets in mask| for every mask, indexed like PIEMaskEngine.
+     * Masks are visited depth-first so a parent is evicted as soon as its subtree is
+     * done: at most n intersections are alive at once. A parent with an empty
+     * intersection is not expanded, since all of its supersets are empty too.
+     */
+    public static long[] intersectionSizes(List<? extends PIESet> sets) {
+        int n = sets.size();
+        if (n > PIEMaskEngine.MAX_SETS) {
+            throw new IllegalArgumentException("Too many sets for dense evaluation: " + n + " > " + PIEMaskEngine.MAX_SETS);
+        }
+
+        long start = PIEMetrics.start();
+        long[] sizes = new long[1 << n];
+        for (int i = 0; i < n; i++) {
+            PIESet set = sets.get(i);
+            sizes[1 << i] = set.cardinality();
+            if (sizes[1 << i] > 0) extend(sets, 1 << i, i, set, sizes);
+        }
+        PIEMetrics.record(PIEMetrics.Phase.INTERSECT, start, sizes.length - 1);
+        return sizes;
+    }
+
+    // ----------- Children of mask add one set with a higher index than its highest bit -----------
+    private static void extend(List<? extends PIESet> sets, int mask, int highest, PIESet inter, long[] sizes) {
+        for (int b = highest + 1; b < sets.size(); b++) {
+            PIESet child = inter.and(sets.get(b));
+            int childMask = mask | (1 << b);
+            sizes[childMask] = child.cardinality();
+            if (sizes[childMask] > 0) extend(sets, childMask, b, child, sizes);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * PIEMaskEngine - bitmask-indexed Inclusion-Exclusion evaluator.
+ * Intersection sizes are stored in a flat long[] where the index is the subset mask
+ * (bit i set = setNames[i] takes part in the intersection), so summing needs no keys.
+ */
+public final class PIEMaskEngine {
+
+    // Largest n for which a dense long[1 << n] can be indexed by an int mask
+    public static final int MAX_SETS = 30;
+
+    // Fewer than 2^PARALLEL_THRESHOLD_BITS masks are summed on the calling thread
+    public static final int PARALLEL_THRESHOLD_BITS = 16;
+
+    // Masks summed by one fork-join leaf task
+    private static final int CHUNK_SIZE = 1 << 13;
+
+    // Prevent instantiation
+    private PIEMaskEngine() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ----------- Adapter: "A∩B∩C" keyed map -> mask-indexed array -----------
+    public static long[] fromKeyedMap(Map<String, ? extends Number> data, String[] setNames) {
+        int n = setNames.length;
+        if (n > MAX_SETS) {
+            throw new IllegalArgumentException("Too many sets for dense evaluation: " + n + " > " + MAX_SETS);
+        }
+
+        long start = PIEMetrics.start();
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) index.put(setNames[i].strip(), i);
+
+        long[] values = new long[1 << n];
+        for (Map.Entry<String, ? extends Number> entry : data.entrySet()) {
+            values[maskOf(entry.getKey(), index)] = entry.getValue().longValue();
+        }
+        PIEMetrics.record(PIEMetrics.Phase.GENERATE, start, data.size());
+        return values;
+    }
+
+    // ----------- Parse "A∩B∩C" (any order, "A ∩ B" allowed) into a mask -----------
+    // An unknown or repeated name ("A∩X", "A∩A") is malformed input: IllegalArgumentException
+    static int maskOf(String key, Map<String, Integer> index) {
+        int mask = 0;
+        int start = 0;
+        while (start <= key.length()) {
+            int end = key.indexOf('∩', start);
+            if (end < 0) end = key.length();
+            String name = key.substring(start, end).strip();
+            Integer idx = index.get(name);
+            if (idx == null) throw new IllegalArgumentException("Unknown set '" + name + "' in " + key);
+            if ((mask & 1 << idx) != 0) throw new IllegalArgumentException("Set '" + name + "' repeated in " + key);
+            mask |= 1 << idx;
+            start = end + 1;
+        }
+        return mask;
+    }
+
+    // ----------- Build key like A∩B∩C from a mask -----------
+    public static String key(int mask, String[] setNames) {
+        StringJoiner sj = new StringJoiner("∩");
+        for (int i = 0; i < setNames.length; i++) {
+            if ((mask & (1 << i)) != 0) sj.add(setNames[i]);
+        }
+        return sj.toString();
+    }
+
+    // Same key, built in a caller-owned buffer that is cleared first (one builder for a whole walk)
+    public static String key(int mask, String[] setNames, StringBuilder buffer) {
+        buffer.setLength(0);
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            if (buffer.length() > 0) buffer.append('∩');
+            buffer.append(setNames[Integer.numberOfTrailingZeros(bits)]);
+        }
+        return buffer.toString();
+    }
+
+    // ----------- Sign of a term: + for odd-sized subsets, - for even -----------
+    public static int sign(int mask) {
+        return (Integer.bitCount(mask) & 1) == 1 ? 1 : -1;
+    }
+
+    // ----------- Inclusion-Exclusion sum over all non-empty masks -----------
+    public static PIETotal union(long[] values) {
+        long start = PIEMetrics.start();
+        PIETotal total = values.length < (1 << PARALLEL_THRESHOLD_BITS) ? unionSequential(values) : unionParallel(values);
+        PIEMetrics.record(PIEMetrics.Phase.SUM, start, values.length - 1);
+        return total;
+    }
+
+    public static PIETotal unionSequential(long[] values) {
+        return signedSum(values, 1, values.length);
+    }
+
+    // ----------- Fork-join sum: same result as the sequential path -----------
+    public static PIETotal unionParallel(long[] values) {
+        return ForkJoinPool.commonPool().invoke(new SumTask(values, 1, values.length));
+    }
+
+    private static PIETotal signedSum(long[] values, int from, int to) {
+        PIETotal.Accumulator total = new PIETotal.Accumulator();
+        for (int mask = from; mask < to; mask++) {
+            if ((Integer.bitCount(mask) & 1) == 1) {
+                total.add(values[mask]);
+            } else {
+                total.subtract(values[mask]);
+            }
+        }
+        return total.result();
+    }
+
+    // Splits [from, to) in halves until a chunk is small enough to sum directly.
+    // Partial sums are exact, so the split cannot change the result.
+    private static final class SumTask extends RecursiveTask<PIETotal> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] values;
+        private final int from;
+        private final int to;
+
+        SumTask(long[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PIETotal compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return signedSum(values, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            SumTask left = new SumTask(values, from, mid);
+            left.fork();
+            PIETotal right = new SumTask(values, mid, to).compute();
+            return left.join().plus(right);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package src;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.ToLongFunction;
+import javax.management.*;
+
+/**
+ * PIEMetrics - per-phase counters and latency histograms for PIE runs.
+ * Switched on with -Dpie.metrics=true. ENABLED is a static final constant, so with
+ * metrics off the JIT folds every start()/record() call away and the hot paths pay
+ * nothing. Counters are LongAdders; latencies go into a log-linear histogram
+ * (8 sub-buckets per power of two, so percentiles are within 12.5%).
+ */
+public final class PIEMetrics implements PIEMetricsMXBean {
+
+    public static final boolean ENABLED = Boolean.getBoolean("pie.metrics");
+
+    public enum Phase {
+        GENERATE,  // parsing keys / building the mask-indexed input
+        INTERSECT, // intersection sizes of real sets
+        SUM,       // the signed Inclusion-Exclusion sum
+        TRACE      // formatting and writing one step line
+    }
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final PIEMetrics INSTANCE = new PIEMetrics();
+
+    private final LongAdder[] counts = new LongAdder[Phase.values().length];
+    private final LongAdder[] items = new LongAdder[Phase.values().length];
+    private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+    private final AtomicLongArray[] histograms = new AtomicLongArray[Phase.values().length];
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(INSTANCE, new ObjectName("src:type=PIEMetrics"));
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register the PIE metrics MBean", e);
+            }
+        }
+    }
+
+    private PIEMetrics() {
+        for (int p = 0; p < counts.length; p++) {
+            counts[p] = new LongAdder();
+            items[p] = new LongAdder();
+            nanos[p] = new LongAdder();
+            histograms[p] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    public static PIEMetrics get() {
+        return INSTANCE;
+    }
+
+    // ----------- Hot-path API: long start = PIEMetrics.start(); ... record(phase, start, n) -----------
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void record(Phase phase, long start, long itemCount) {
+        if (!ENABLED) return;
+        long elapsed = System.nanoTime() - start;
+        int p = phase.ordinal();
+        INSTANCE.counts[p].increment();
+        INSTANCE.items[p].add(itemCount);
+        INSTANCE.nanos[p].add(elapsed);
+        INSTANCE.histograms[p].incrementAndGet(bucket(Math.max(0, elapsed)));
+    }
+
+    // ----------- Log-linear bucket of a latency in nanoseconds -----------
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Smallest value that falls into the bucket
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public long count(Phase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+    public long items(Phase phase) {
+        return items[phase.ordinal()].sum();
+    }
+
+    public long totalNanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    // Latency at the given quantile (0..1), as the lower bound of its bucket
+    public long percentileNanos(Phase phase, double quantile) {
+        AtomicLongArray histogram = histograms[phase.ordinal()];
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            copy[b] = histogram.get(b);
+            total += copy[b];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += copy[b];
+            if (seen >= rank) return lowerBound(b);
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    // ----------- Text snapshot, one line per phase -----------
+    public String snapshot() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%-10s %10s %12s %12s %10s %10s%n",
+                "phase", "runs", "items", "total ms", "p50 us", "p99 us"));
+        for (Phase phase : Phase.values()) {
+            sb.append(String.format(Locale.ROOT, "%-10s %10d %12d %12.3f %10.1f %10.1f%n",
+                    phase, count(phase), items(phase), totalNanos(phase) / 1e6,
+                    percentileNanos(phase, 0.50) / 1e3, percentileNanos(phase, 0.99) / 1e3));
+        }
+        return sb.toString();
+    }
+
+    // ----------- PIEMetricsMXBean -----------
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return byPhase(this::count);
+    }
+
+    @Override
+    public Map<String, Long> getItems() {
+        return byPhase(this::items);
+    }
+
+    @Override
+    public Map<String, Long> getTotalMicros() {
+        return byPhase(phase -> totalNanos(phase) / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getP50Micros() {
+        return byPhase(phase -> percentileNanos(phase, 0.50) / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        return byPhase(phase -> percentileNanos(phase, 0.99) / 1_000);
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot();
+    }
+
+    @Override
+    public void reset() {
+        for (int p = 0; p < counts.length; p++) {
+            counts[p].reset();
+            items[p].reset();
+            nanos[p].reset();
+            for (int b = 0; b < BUCKETS; b++) histograms[p].set(b, 0);
+        }
+    }
+
+    private static Map<String, Long> byPhase(ToLongFunction<Phase> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) result.put(phase.name(), value.applyAsLong(phase));
+        return result;
+    }
+}
@@ -0,0 +1,29 @@
+package src;
+
+import java.util.Map;
+
+/**
+ * PIEMetricsMXBean - JMX view of PIEMetrics, registered as "src:type=PIEMetrics"
+ * when the JVM runs with -Dpie.metrics=true. Maps are keyed by phase name.
+ */
+public interface PIEMetricsMXBean {
+
+    boolean isEnabled();
+
+    // Completed runs of each phase
+    Map<String, Long> getCounts();
+
+    // Items handled by each phase (masks, intersections, terms, trace lines)
+    Map<String, Long> getItems();
+
+    Map<String, Long> getTotalMicros();
+
+    Map<String, Long> getP50Micros();
+
+    Map<String, Long> getP99Micros();
+
+    // The same numbers as one text table
+    String getSnapshot();
+
+    void reset();
+}
@@ -0,0 +1,114 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIEPlan - Inclusion-Exclusion compiled once for a fixed list of set names.
+ * prepare() works out everything that does not depend on the numbers: the slot of
+ * each "A∩B" key (its mask), and the sign of each slot. Evaluating a value vector is
+ * then a single pass over two long[] arrays with no allocation, and a batch of vectors
+ * is evaluated row by row in the same loop.
+ *
+ * Value vectors are indexed like PIEMaskEngine: values[mask] = |∩ sets in mask|,
+ * slot 0 is ignored. Results are exact longs; a sum that overflows throws
+ * ArithmeticException (use PIEMaskEngine.union for BigInteger precision).
+ */
+public final class PIEPlan {
+
+    private final String[] setNames;
+    private final Map<String, Integer> index;
+    private final long[] negate; // 0 where the term is added, -1 (all bits) where it is subtracted
+    private final int safeBits;  // terms below 2^safeBits in magnitude cannot overflow the sum
+
+    private PIEPlan(String[] setNames) {
+        this.setNames = setNames;
+        this.index = new HashMap<>();
+        for (int i = 0; i < setNames.length; i++) index.put(setNames[i].strip(), i);
+        this.negate = new long[1 << setNames.length];
+        for (int mask = 1; mask < negate.length; mask++) negate[mask] = PIEMaskEngine.sign(mask) == 1 ? 0 : -1;
+        this.safeBits = 62 - setNames.length;
+    }
+
+    public static PIEPlan prepare(String... setNames) {
+        if (setNames.length > PIEMaskEngine.MAX_SETS) {
+            throw new IllegalArgumentException("Too many sets for dense evaluation: " + setNames.length
+                    + " > " + PIEMaskEngine.MAX_SETS);
+        }
+        return new PIEPlan(setNames.clone());
+    }
+
+    // Length of a value vector: 2^n
+    public int width() {
+        return negate.length;
+    }
+
+    public String[] setNames() {
+        return setNames.clone();
+    }
+
+    // ----------- Slot of "A∩B∩C" (any order) in a value vector -----------
+    public int slot(String key) {
+        return PIEMaskEngine.maskOf(key, index);
+    }
+
+    // Fills values from a keyed map; unknown keys are rejected, missing keys are 0
+    public void fill(Map<String, ? extends Number> data, long[] values) {
+        checkWidth(values.length);
+        Arrays.fill(values, 0);
+        for (Map.Entry<String, ? extends Number> entry : data.entrySet()) {
+            values[slot(entry.getKey())] = entry.getValue().longValue();
+        }
+    }
+
+    // ----------- |A ∪ B ∪ ...| for one value vector -----------
+    public long evaluate(long[] values) {
+        checkWidth(values.length);
+        return evaluate(values, 0);
+    }
+
+    // ----------- Row-major batch: rows vectors of width() values each, one result per row -----------
+    public void evaluate(long[] rows, int count, long[] results) {
+        if (rows.length < (long) count * negate.length) {
+            throw new IllegalArgumentException("Expected " + count + " rows of " + negate.length + " values");
+        }
+        for (int r = 0; r < count; r++) {
+            results[r] = evaluate(rows, r * negate.length);
+        }
+    }
+
+    public void evaluate(long[][] batch, long[] results) {
+        for (int r = 0; r < batch.length; r++) {
+            results[r] = evaluate(batch[r]);
+        }
+    }
+
+    /**
+     * Branch-free pass: (v ^ m) - m is v or -v, and the OR of all magnitudes tells
+     * afterwards whether 2^n such terms could have overflowed. Only then is the sum
+     * redone with exact arithmetic, so the common case stays a plain, vectorisable loop.
+     */
+    private long evaluate(long[] values, int offset) {
+        long[] m = negate;
+        long total = 0;
+        long magnitudes = 0;
+        for (int mask = 1; mask < m.length; mask++) {
+            long v = values[offset + mask];
+            total += (v ^ m[mask]) - m[mask];
+            magnitudes |= v ^ (v >> 63);
+        }
+        if (magnitudes >>> safeBits == 0) return total;
+
+        total = 0;
+        for (int mask = 1; mask < m.length; mask++) {
+            long v = values[offset + mask];
+            total = m[mask] == 0 ? Math.addExact(total, v) : Math.subtractExact(total, v);
+        }
+        return total;
+    }
+
+    private void checkWidth(int length) {
+        if (length != negate.length) {
+            throw new IllegalArgumentException("Expected " + negate.length + " values, got " + length);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIERegions - Venn region counts from intersection sizes via subset-sum transforms.
+ * Input is the mask-indexed array used by PIEMaskEngine (values[mask] = |∩ sets in mask|).
+ * One O(n·2^n) Möbius pass yields every "exactly these sets" region at once, instead of
+ * one PIE evaluation per region.
+ */
+public final class PIERegions {
+
+    // Prevent instantiation
+    private PIERegions() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ----------- Adapter: same input as piev4.inclusionExclusion -----------
+    public static long[] exactRegions(Map<String, ? extends Number> data, String[] setNames) {
+        return exactRegions(PIEMaskEngine.fromKeyedMap(data, setNames));
+    }
+
+    /**
+     * Möbius transform over supersets: result[mask] = number of elements that are in
+     * every set of mask and in no other set. result[0] (elements in no set) is unknown
+     * from intersection sizes alone and is left at 0.
+     */
+    public static long[] exactRegions(long[] intersections) {
+        long[] regions = intersections.clone();
+        regions[0] = 0;
+        int size = regions.length;
+        for (int bit = 1; bit < size; bit <<= 1) {
+            // mask 0 is skipped: it is never read, and its running difference could overflow for nothing
+            for (int mask = 1; mask < size; mask++) {
+                if ((mask & bit) == 0) {
+                    regions[mask] = Math.subtractExact(regions[mask], regions[mask | bit]);
+                }
+            }
+        }
+        regions[0] = 0;
+        return regions;
+    }
+
+    // ----------- Zeta transform: back from regions to intersection sizes -----------
+    public static long[] intersections(long[] regions) {
+        long[] values = regions.clone();
+        int size = values.length;
+        for (int bit = 1; bit < size; bit <<= 1) {
+            for (int mask = 0; mask < size; mask++) {
+                if ((mask & bit) == 0) {
+                    values[mask] = Math.addExact(values[mask], values[mask | bit]);
+                }
+            }
+        }
+        return values;
+    }
+
+    // ----------- exactly[k] = elements in exactly k of the n sets (ArithmeticException on overflow) -----------
+    public static long[] exactlyK(long[] regions, int n) {
+        long[] exactly = new long[n + 1];
+        for (int mask = 1; mask < regions.length; mask++) {
+            int k = Integer.bitCount(mask);
+            exactly[k] = Math.addExact(exactly[k], regions[mask]);
+        }
+        return exactly;
+    }
+
+    // ----------- atLeast[k] = elements in k or more of the n sets (ArithmeticException on overflow) -----------
+    public static long[] atLeastK(long[] regions, int n) {
+        long[] atLeast = exactlyK(regions, n);
+        for (int k = n - 1; k >= 0; k--) atLeast[k] = Math.addExact(atLeast[k], atLeast[k + 1]);
+        return atLeast;
+    }
+}
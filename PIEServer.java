@@ -0,0 +1,262 @@
+package src;
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+
+/**
+ * PIEServer - embedded HTTP mode: one warm JVM answers PIE problems over the network.
+ * Requests run on a fixed pool of one thread per core and build all of their state
+ * (parser, sets, trace, output) locally, so concurrent requests share nothing mutable.
+ * A body over MAX_BODY_BYTES gets 413, a problem with more than MAX_SETS sets gets 400:
+ * the dense evaluation allocates 2^n values, so n is what bounds a request's memory.
+ *
+ * The request body uses the batch format (see PIEBatch):
+ * <pre>
+ *   POST /union     any number of problems, one CSV result line per problem
+ *   POST /trace     one problem, the Inclusion-Exclusion steps and the union
+ *   POST /regions   one problem, the size of every Venn region
+ *   GET  /metrics   per-phase timings (with -Dpie.metrics=true)
+ * </pre>
+ * For example: {@code curl --data 'A=10, B=20, A∩B=5' localhost:8080/trace}
+ */
+public final class PIEServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    public static final int MAX_SETS = 20;
+
+    public static final int MAX_BODY_BYTES = 4 << 20;
+
+    private static final Logger logger = Logger.getLogger(PIEServer.class.getName());
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private PIEServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    // ----------- Bind and start serving; returns immediately -----------
+    public static PIEServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(executor);
+        server.createContext("/union", exchange -> handle(exchange, PIEServer::union));
+        server.createContext("/trace", exchange -> handle(exchange, PIEServer::trace));
+        server.createContext("/regions", exchange -> handle(exchange, PIEServer::regions));
+        server.createContext("/metrics", PIEServer::metrics);
+        server.start();
+        return new PIEServer(server, executor);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Turns the body of one request into the text of its response
+    @FunctionalInterface
+    private interface Endpoint {
+        String answer(InputStream body) throws IOException;
+    }
+
+    private static void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            int status;
+            String response;
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                status = 405;
+                response = "Use POST with the problem in the request body\n";
+            } else {
+                try {
+                    response = endpoint.answer(body(exchange));
+                    status = 200;
+                } catch (BodyTooLarge e) {
+                    status = 413;
+                    response = "error: " + e.getMessage() + "\n";
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    status = 400;
+                    response = "error: " + e.getMessage() + "\n";
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Request to " + exchange.getRequestURI() + " failed", e);
+                    status = 500;
+                    response = "error: internal error\n";
+                }
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    // Request body, cut off with BodyTooLarge after MAX_BODY_BYTES
+    private static InputStream body(HttpExchange exchange) throws BodyTooLarge {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            if (length != null && Long.parseLong(length.trim()) > MAX_BODY_BYTES) throw new BodyTooLarge();
+        } catch (NumberFormatException e) {
+            // malformed header: the counting stream below still enforces the limit
+        }
+        return new FilterInputStream(exchange.getRequestBody()) {
+            private long read;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) count(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) count(n);
+                return n;
+            }
+
+            private void count(int n) throws BodyTooLarge {
+                read += n;
+                if (read > MAX_BODY_BYTES) throw new BodyTooLarge();
+            }
+        };
+    }
+
+    private static final class BodyTooLarge extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLarge() {
+            super("request body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+    }
+
+    // ----------- GET /metrics: the text snapshot of PIEMetrics -----------
+    private static void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String response = PIEMetrics.ENABLED ? PIEMetrics.get().snapshot() : "metrics disabled (run with -Dpie.metrics=true)\n";
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    // ----------- POST /union: same output as batch mode -----------
+    private static String union(InputStream body) throws IOException {
+        StringWriter out = new StringWriter();
+        PIEBatch.run(body, out, MAX_SETS);
+        return out.toString();
+    }
+
+    // ----------- POST /trace: every signed term, then the union -----------
+    private static String trace(InputStream body) throws IOException {
+        Problem problem = Problem.read(body);
+        StringBuilder out = new StringBuilder();
+        PIETotal total = piev4.inclusionExclusion(problem.intersections(), problem.setNames(),
+                PIETrace.Level.PER_TERM, line -> out.append(line).append('\n'));
+        if (total.signum() < 0) out.append("Invalid result! Union size cannot be negative.\n");
+        return out.toString();
+    }
+
+    // ----------- POST /regions: "key = size" per Venn region -----------
+    private static String regions(InputStream body) throws IOException {
+        Problem problem = Problem.read(body);
+        String[] names = problem.setNames();
+        long[] regions = PIERegions.exactRegions(problem.intersections());
+        StringBuilder out = new StringBuilder();
+        for (int mask = 1; mask < regions.length; mask++) {
+            out.append("only ").append(PIEMaskEngine.key(mask, names)).append(" = ").append(regions[mask]).append('\n');
+        }
+        return out.toString();
+    }
+
+    /** The single problem in a request body: sizes by key, or raw sets. */
+    private static final class Problem implements PIEBatch.Listener {
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<PIESet> sets = new ArrayList<>();
+        private PIESet current;
+        private int problems;
+
+        static Problem read(InputStream body) throws IOException {
+            Problem problem = new Problem();
+            PIEBatch.parse(body, problem);
+            if (problem.problems != 1) {
+                throw new IllegalArgumentException("expected exactly one problem, got " + problem.problems);
+            }
+            if (!problem.sets.isEmpty() && !problem.counts.isEmpty()) {
+                throw new IllegalArgumentException("mixes sizes and raw elements");
+            }
+            int n = problem.setNames().length;
+            if (n > MAX_SETS) throw new IllegalArgumentException("too many sets: " + n + " > " + MAX_SETS);
+            return problem;
+        }
+
+        String[] setNames() {
+            if (!sets.isEmpty()) return names.toArray(new String[0]);
+            List<String> single = new ArrayList<>();
+            for (String key : counts.keySet()) {
+                if (key.indexOf('∩') < 0) single.add(key);
+            }
+            return single.toArray(new String[0]);
+        }
+
+        long[] intersections() {
+            if (!sets.isEmpty()) return PIELattice.intersectionSizes(sets);
+            return PIEMaskEngine.fromKeyedMap(counts, setNames());
+        }
+
+        @Override
+        public void count(String key, long value) {
+            counts.put(key, value);
+        }
+
+        @Override
+        public void beginSet(String name) {
+            names.add(name);
+            current = new PIEBitmap();
+        }
+
+        @Override
+        public void element(long value) {
+            current.add(Math.toIntExact(value));
+        }
+
+        @Override
+        public void endSet() {
+            sets.add(current);
+        }
+
+        @Override
+        public void endProblem(int lineNumber) {
+            problems++;
+        }
+
+        @Override
+        public void invalidProblem(int lineNumber, String message) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package src;
+
+import java.util.function.IntConsumer;
+
+/**
+ * PIESet - set of int elements used by the set-based PIE and set operations.
+ * Operations never modify their inputs; they return a new set. The *Cardinality
+ * variants return only the size of the result.
+ */
+public interface PIESet {
+
+    void add(int value);
+
+    boolean contains(int value);
+
+    long cardinality();
+
+    PIESet and(PIESet other);
+
+    PIESet or(PIESet other);
+
+    PIESet andNot(PIESet other);
+
+    void forEach(IntConsumer action);
+
+    // ----------- Result sizes only; implementations count without building the result -----------
+
+    default long andCardinality(PIESet other) {
+        return and(other).cardinality();
+    }
+
+    default long orCardinality(PIESet other) {
+        return cardinality() + other.cardinality() - andCardinality(other);
+    }
+
+    default long andNotCardinality(PIESet other) {
+        return cardinality() - andCardinality(other);
+    }
+}
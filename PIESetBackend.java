@@ -0,0 +1,41 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIESetBackend - choice of set representation for the set-based tools.
+ * Selected with -Dpie.sets=bitmap|hash|sorted_array (bitmap by default).
+ */
+public enum PIESetBackend {
+
+    HASH {
+        @Override
+        public PIESet create() {
+            return new HashPIESet();
+        }
+    },
+    BITMAP {
+        @Override
+        public PIESet create() {
+            return new PIEBitmap();
+        }
+    },
+    SORTED_ARRAY {
+        @Override
+        public PIESet create() {
+            return new SortedArrayPIESet();
+        }
+    };
+
+    public abstract PIESet create();
+
+    public static PIESetBackend fromSystemProperty() {
+        String name = System.getProperty("pie.sets", "bitmap");
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown set backend: " + name
+                    + " (expected one of " + Arrays.toString(values()) + ")", e);
+        }
+    }
+}
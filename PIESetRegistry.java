@@ -0,0 +1,201 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.*;
+import java.util.function.IntConsumer;
+
+/**
+ * PIESetRegistry - named sets kept resident for concurrent set operations.
+ * Each set is an immutable PIEBitmap snapshot behind a volatile reference. Writers
+ * take that set's own lock, build the next snapshot copy-on-write (only the 2^16-value
+ * chunks they touch are copied) and publish it; readers just read the reference, so
+ * they never block and always see a complete snapshot. The universal set (union of
+ * all sets) is maintained incrementally: each add first advances it by compare-and-set
+ * with the same values, so it is always a superset of every published set. Writers to
+ * different sets take no common lock; a failed CAS only repeats that writer's withAdded.
+ */
+public final class PIESetRegistry {
+
+    private static final class Entry {
+        private final Lock writeLock = new ReentrantLock();
+        private volatile PIEBitmap snapshot = new PIEBitmap();
+    }
+
+    private final ConcurrentHashMap<String, Entry> sets = new ConcurrentHashMap<>();
+    private final AtomicReference<PIEBitmap> universal = new AtomicReference<>(new PIEBitmap());
+
+    // ----------- Writers -----------
+
+    public void add(String name, int... values) {
+        add(name, values, values.length);
+    }
+
+    // Adds values[0 .. count) to the named set, creating it if needed
+    public void add(String name, int[] values, int count) {
+        Entry entry = sets.computeIfAbsent(name, key -> new Entry());
+
+        // universal first, so it is a superset of every published set at all times
+        PIEBitmap current;
+        PIEBitmap next;
+        do {
+            current = universal.get();
+            next = current.withAdded(values, count);
+        } while (!universal.compareAndSet(current, next));
+
+        entry.writeLock.lock();
+        try {
+            entry.snapshot = entry.snapshot.withAdded(values, count);
+        } finally {
+            entry.writeLock.unlock();
+        }
+    }
+
+    // Adds every element of set to the named set
+    public void addAll(String name, PIESet set) {
+        int[] values = new int[Math.toIntExact(set.cardinality())];
+        int[] n = {0};
+        set.forEach(value -> values[n[0]++] = value);
+        add(name, values, n[0]);
+    }
+
+    // ----------- Lock-free readers -----------
+
+    public List<String> names() {
+        return new ArrayList<>(sets.keySet());
+    }
+
+    public boolean contains(String name) {
+        return sets.containsKey(name);
+    }
+
+    // Current contents of one set; later adds do not show up in it
+    public PIESet snapshot(String name) {
+        return new ReadOnly(entry(name).snapshot);
+    }
+
+    public PIESet universal() {
+        return new ReadOnly(universal.get());
+    }
+
+    public PIESet union(String... names) {
+        List<PIEBitmap> snapshots = new ArrayList<>(names.length);
+        for (String name : names) snapshots.add(entry(name).snapshot);
+        return PIEBitmap.orAll(snapshots);
+    }
+
+    // Starts from the smallest set, so every step is bounded by its size
+    public PIESet intersection(String... names) {
+        if (names.length == 0) return new PIEBitmap();
+        List<PIEBitmap> snapshots = new ArrayList<>(names.length);
+        for (String name : names) snapshots.add(entry(name).snapshot);
+        snapshots.sort(Comparator.comparingLong(PIEBitmap::cardinality));
+        PIEBitmap result = snapshots.get(0).and(snapshots.get(0)); // a private copy
+        for (int i = 1; i < snapshots.size() && !result.isEmpty(); i++) result = result.and(snapshots.get(i));
+        return result;
+    }
+
+    public PIESet difference(String first, String second) {
+        return entry(first).snapshot.andNot(entry(second).snapshot);
+    }
+
+    // Everything in some registered set but not in this one
+    public PIESet complement(String name) {
+        PIEBitmap set = entry(name).snapshot; // read before universal, which only grows
+        return universal.get().andNot(set);
+    }
+
+    // ----------- Result sizes only, without materialising the result -----------
+
+    public long unionCardinality(String... names) {
+        List<PIEBitmap> snapshots = new ArrayList<>(names.length);
+        for (String name : names) snapshots.add(entry(name).snapshot);
+        return PIEBitmap.orAllCardinality(snapshots);
+    }
+
+    // All but the last (largest) intersection step build sets; the last one only counts
+    public long intersectionCardinality(String... names) {
+        if (names.length == 0) return 0;
+        List<PIEBitmap> snapshots = new ArrayList<>(names.length);
+        for (String name : names) snapshots.add(entry(name).snapshot);
+        snapshots.sort(Comparator.comparingLong(PIEBitmap::cardinality));
+        if (snapshots.size() == 1) return snapshots.get(0).cardinality();
+        PIEBitmap partial = snapshots.get(0);
+        for (int i = 1; i < snapshots.size() - 1 && !partial.isEmpty(); i++) partial = partial.and(snapshots.get(i));
+        return partial.andCardinality(snapshots.get(snapshots.size() - 1));
+    }
+
+    public long differenceCardinality(String first, String second) {
+        return entry(first).snapshot.andNotCardinality(entry(second).snapshot);
+    }
+
+    public long complementCardinality(String name) {
+        PIEBitmap set = entry(name).snapshot;
+        return universal.get().andNotCardinality(set);
+    }
+
+    private Entry entry(String name) {
+        Entry entry = sets.get(name);
+        if (entry == null) throw new NoSuchElementException("No set named " + name);
+        return entry;
+    }
+
+    /** Published snapshots share chunks with their successors, so callers get no add(). */
+    private static final class ReadOnly implements PIESet {
+        private final PIEBitmap bitmap;
+
+        ReadOnly(PIEBitmap bitmap) {
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        public void add(int value) {
+            throw new UnsupportedOperationException("Registry snapshots are read-only");
+        }
+
+        @Override
+        public boolean contains(int value) {
+            return bitmap.contains(value);
+        }
+
+        @Override
+        public long cardinality() {
+            return bitmap.cardinality();
+        }
+
+        @Override
+        public PIESet and(PIESet other) {
+            return bitmap.and(unwrap(other));
+        }
+
+        @Override
+        public PIESet or(PIESet other) {
+            return bitmap.or(unwrap(other));
+        }
+
+        @Override
+        public PIESet andNot(PIESet other) {
+            return bitmap.andNot(unwrap(other));
+        }
+
+        @Override
+        public long andCardinality(PIESet other) {
+            return bitmap.andCardinality(unwrap(other));
+        }
+
+        @Override
+        public void forEach(IntConsumer action) {
+            bitmap.forEach(action);
+        }
+
+        @Override
+        public String toString() {
+            return bitmap.toString();
+        }
+
+        private static PIESet unwrap(PIESet set) {
+            return set instanceof ReadOnly readOnly ? readOnly.bitmap : set;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+/** Registry operations against HashPIESet, with writers running concurrently. */
+class PIESetRegistryTest {
+
+    private static Set<Integer> contents(PIESet set) {
+        Set<Integer> values = new HashSet<>();
+        set.forEach(values::add);
+        return values;
+    }
+
+    @Test
+    void concurrentWritersEndWithEveryValue() throws Exception {
+        PIESetRegistry registry = new PIESetRegistry();
+        String[] names = {"A", "B", "C", "D"};
+        List<HashPIESet> reference = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(names.length);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int s = 0; s < names.length; s++) {
+                HashPIESet expected = new HashPIESet();
+                reference.add(expected);
+                Random random = new Random(10 + s);
+                int[][] batches = new int[200][];
+                for (int b = 0; b < batches.length; b++) {
+                    batches[b] = random.ints(1 + random.nextInt(50), -100_000, 100_000).toArray();
+                    for (int value : batches[b]) expected.add(value);
+                }
+                String name = names[s];
+                registry.add(name); // every set exists before readers look it up
+                writers.add(pool.submit(() -> {
+                    for (int[] batch : batches) registry.add(name, batch);
+                }));
+            }
+            // readers see complete snapshots while the writers run: the union always contains each set
+            while (!writers.stream().allMatch(Future::isDone)) {
+                PIESet a = registry.snapshot("A");
+                assertTrue(contents(registry.universal()).containsAll(contents(a)));
+            }
+            for (Future<?> writer : writers) writer.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        HashPIESet all = new HashPIESet();
+        reference.forEach(set -> set.forEach(all::add));
+        assertEquals(contents(all), contents(registry.universal()));
+        assertEquals(contents(all), contents(registry.union(names)));
+        for (int s = 0; s < names.length; s++) {
+            assertEquals(contents(reference.get(s)), contents(registry.snapshot(names[s])));
+            assertEquals(contents(all.andNot(reference.get(s))), contents(registry.complement(names[s])));
+            assertEquals(all.andNot(reference.get(s)).cardinality(), registry.complementCardinality(names[s]));
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package src;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * PIESetStore - compact on-disk store of named int sets, read through memory mapping.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   "PIES" magic, int version, int set count
+ *   per set: short name length, UTF-8 name, long element count, long data offset, long data length
+ *   per set: elements in ascending unsigned order, as varint-encoded gaps from the previous value
+ * </pre>
+ * Opening a store maps each set's data with FileChannel.map, so reloading costs no parsing
+ * and no heap copy; intersections, unions and differences stream over the mapped bytes.
+ * Names are limited to 65535 UTF-8 bytes.
+ */
+public final class PIESetStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x50494553; // "PIES"
+    private static final int VERSION = 1;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+    private static final int SKIP_INTERVAL = 64; // elements between skip index entries
+
+    private final FileChannel channel;
+    private final String[] names;
+    private final MappedSet[] sets;
+
+    private PIESetStore(FileChannel channel, String[] names, MappedSet[] sets) {
+        this.channel = channel;
+        this.names = names;
+        this.sets = sets;
+    }
+
+    // ----------- Write sets to a new store file -----------
+    public static void write(Path file, String[] names, List<? extends PIESet> sets) throws IOException {
+        if (names.length != sets.size()) throw new IllegalArgumentException("One name per set expected");
+
+        byte[][] encodedNames = new byte[names.length][];
+        long headerSize = 12;
+        for (int i = 0; i < names.length; i++) {
+            encodedNames[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            if (encodedNames[i].length > MAX_NAME_BYTES) {
+                throw new IllegalArgumentException("Set name longer than " + MAX_NAME_BYTES + " bytes: "
+                        + names[i].substring(0, 40) + "...");
+            }
+            headerSize += 2 + encodedNames[i].length + 24;
+        }
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long[] counts = new long[sets.size()];
+            long[] offsets = new long[sets.size()];
+            long[] lengths = new long[sets.size()];
+
+            // data first, then go back and fill in the header
+            out.position(headerSize);
+            Encoder encoder = new Encoder(out);
+            try {
+                for (int i = 0; i < sets.size(); i++) {
+                    PIESet set = sets.get(i);
+                    offsets[i] = out.position();
+                    encoder.reset();
+                    if (set instanceof PIEBitmap) {
+                        set.forEach(encoder); // already in ascending unsigned order
+                    } else {
+                        for (int value : sortedUnsigned(set)) encoder.accept(value);
+                    }
+                    encoder.flush();
+                    counts[i] = encoder.count;
+                    lengths[i] = out.position() - offsets[i];
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate((int) headerSize);
+            header.putInt(MAGIC).putInt(VERSION).putInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                header.putShort((short) encodedNames[i].length).put(encodedNames[i]);
+                header.putLong(counts[i]).putLong(offsets[i]).putLong(lengths[i]);
+            }
+            header.flip();
+            out.position(0);
+            while (header.hasRemaining()) out.write(header);
+        }
+    }
+
+    // ----------- Open a store: header is read, element data is mapped -----------
+    public static PIESetStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = ByteBuffer.allocate(12);
+            readFully(channel, fixed, 0);
+            if (fixed.getInt() != MAGIC) throw new IOException("Not a PIE set store: " + file);
+            int version = fixed.getInt();
+            if (version != VERSION) throw new IOException("Unsupported store version " + version);
+            int count = fixed.getInt();
+
+            String[] names = new String[count];
+            MappedSet[] sets = new MappedSet[count];
+            long position = 12;
+            for (int i = 0; i < count; i++) {
+                ByteBuffer length = ByteBuffer.allocate(2);
+                readFully(channel, length, position);
+                int nameLength = length.getShort() & 0xFFFF;
+                ByteBuffer entry = ByteBuffer.allocate(nameLength + 24);
+                readFully(channel, entry, position + 2);
+                byte[] name = new byte[nameLength];
+                entry.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                long elements = entry.getLong();
+                long offset = entry.getLong();
+                long bytes = entry.getLong();
+                sets[i] = new MappedSet(elements, channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes));
+                position += 2 + nameLength + 24;
+            }
+            return new PIESetStore(channel, names, sets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return sets.length;
+    }
+
+    public String[] names() {
+        return names.clone();
+    }
+
+    public MappedSet set(int index) {
+        return sets[index];
+    }
+
+    public MappedSet set(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return sets[i];
+        }
+        throw new NoSuchElementException("No set named " + name);
+    }
+
+    public List<MappedSet> sets() {
+        return List.of(sets);
+    }
+
+    // ----------- Union of mapped sets: k-way merge of their cursors -----------
+    public static PIEBitmap union(List<MappedSet> sets) {
+        PIEBitmap result = new PIEBitmap();
+        merge(sets, null, result::add);
+        return result;
+    }
+
+    public static long unionCardinality(List<MappedSet> sets) {
+        return merge(sets, null, value -> { });
+    }
+
+    // ----------- Complement: everything in the union of sets but not in set -----------
+    public static PIEBitmap complement(List<MappedSet> sets, MappedSet set) {
+        PIEBitmap result = new PIEBitmap();
+        merge(sets, set, result::add);
+        return result;
+    }
+
+    public static long complementCardinality(List<MappedSet> sets, MappedSet set) {
+        return merge(sets, set, value -> { });
+    }
+
+    // Passes each distinct value of the sets, in ascending unsigned order, unless excluded holds it
+    private static long merge(List<MappedSet> sets, MappedSet excluded, IntConsumer action) {
+        Cursor[] cursors = new Cursor[sets.size()];
+        boolean[] live = new boolean[cursors.length];
+        for (int s = 0; s < cursors.length; s++) {
+            cursors[s] = new Cursor(sets.get(s));
+            live[s] = cursors[s].next();
+        }
+        Cursor skip = excluded == null ? null : new Cursor(excluded);
+        boolean hasSkip = skip != null && skip.next();
+        long n = 0;
+        while (true) {
+            long min = Long.MAX_VALUE;
+            for (int s = 0; s < cursors.length; s++) {
+                if (live[s]) min = Math.min(min, cursors[s].value);
+            }
+            if (min == Long.MAX_VALUE) return n;
+            for (int s = 0; s < cursors.length; s++) {
+                if (live[s] && cursors[s].value == min) live[s] = cursors[s].next();
+            }
+            while (hasSkip && skip.value < min) hasSkip = skip.next();
+            if (!hasSkip || skip.value != min) {
+                action.accept((int) min);
+                n++;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Read-only set backed by mapped, delta-encoded data. Operations between two mapped
+     * sets are linear merges over both streams; the result is an in-memory PIEBitmap.
+     * Membership tests use a skip index, built on first use, that records the value and
+     * byte position of every SKIP_INTERVAL-th element.
+     */
+    public static final class MappedSet implements PIESet {
+        private final long cardinality;
+        private final ByteBuffer data;
+        private volatile SkipIndex index;
+
+        MappedSet(long cardinality, ByteBuffer data) {
+            this.cardinality = cardinality;
+            this.data = data;
+        }
+
+        @Override
+        public void add(int value) {
+            throw new UnsupportedOperationException("Mapped sets are read-only");
+        }
+
+        // Binary search in the skip index, then decode at most SKIP_INTERVAL values
+        @Override
+        public boolean contains(int value) {
+            long target = Integer.toUnsignedLong(value);
+            SkipIndex skips = index();
+            int i = Arrays.binarySearch(skips.values, target);
+            if (i >= 0) return true;
+            int entry = -i - 2; // last indexed value below target
+            Cursor cursor = entry < 0 ? new Cursor(this) : new Cursor(this, skips.positions[entry], skips.values[entry]);
+            for (int k = 0; k < SKIP_INTERVAL && cursor.next(); k++) {
+                if (cursor.value >= target) return cursor.value == target;
+            }
+            return false;
+        }
+
+        private SkipIndex index() {
+            SkipIndex skips = index;
+            if (skips == null) {
+                // a race only builds the same index twice
+                int entries = (int) ((cardinality + SKIP_INTERVAL - 1) / SKIP_INTERVAL);
+                long[] values = new long[entries];
+                int[] positions = new int[entries];
+                Cursor cursor = new Cursor(this);
+                for (long k = 0; cursor.next(); k++) {
+                    if (k % SKIP_INTERVAL == 0) {
+                        values[(int) (k / SKIP_INTERVAL)] = cursor.value;
+                        positions[(int) (k / SKIP_INTERVAL)] = cursor.in.position();
+                    }
+                }
+                index = skips = new SkipIndex(values, positions);
+            }
+            return skips;
+        }
+
+        @Override
+        public long cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public PIEBitmap and(PIESet other) {
+            PIEBitmap result = new PIEBitmap();
+            if (other instanceof MappedSet mapped) {
+                Cursor a = new Cursor(this);
+                Cursor b = new Cursor(mapped);
+                boolean hasA = a.next();
+                boolean hasB = b.next();
+                while (hasA && hasB) {
+                    if (a.value == b.value) {
+                        result.add((int) a.value);
+                        hasA = a.next();
+                        hasB = b.next();
+                    } else if (a.value < b.value) {
+                        hasA = a.next();
+                    } else {
+                        hasB = b.next();
+                    }
+                }
+            } else if (drivesLookups(other)) {
+                // the much smaller side probes this set through the skip index
+                other.forEach(value -> {
+                    if (contains(value)) result.add(value);
+                });
+            } else {
+                forEach(value -> {
+                    if (other.contains(value)) result.add(value);
+                });
+            }
+            return result;
+        }
+
+        private boolean drivesLookups(PIESet other) {
+            return other.cardinality() * SKIP_INTERVAL < cardinality;
+        }
+
+        @Override
+        public long andCardinality(PIESet other) {
+            long n = 0;
+            if (other instanceof MappedSet mapped) {
+                Cursor a = new Cursor(this);
+                Cursor b = new Cursor(mapped);
+                boolean hasA = a.next();
+                boolean hasB = b.next();
+                while (hasA && hasB) {
+                    if (a.value == b.value) {
+                        n++;
+                        hasA = a.next();
+                        hasB = b.next();
+                    } else if (a.value < b.value) {
+                        hasA = a.next();
+                    } else {
+                        hasB = b.next();
+                    }
+                }
+            } else if (drivesLookups(other)) {
+                long[] hits = {0};
+                other.forEach(value -> {
+                    if (contains(value)) hits[0]++;
+                });
+                n = hits[0];
+            } else {
+                Cursor a = new Cursor(this);
+                while (a.next()) {
+                    if (other.contains((int) a.value)) n++;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public PIEBitmap or(PIESet other) {
+            if (other instanceof MappedSet mapped) return union(List.of(this, mapped));
+            PIEBitmap result;
+            if (other instanceof PIEBitmap bitmap) {
+                result = bitmap.copy();
+            } else {
+                result = new PIEBitmap();
+                other.forEach(result::add);
+            }
+            forEach(result::add);
+            return result;
+        }
+
+        @Override
+        public PIEBitmap andNot(PIESet other) {
+            PIEBitmap result = new PIEBitmap();
+            if (other instanceof MappedSet mapped) {
+                Cursor a = new Cursor(this);
+                Cursor b = new Cursor(mapped);
+                boolean hasB = b.next();
+                while (a.next()) {
+                    while (hasB && b.value < a.value) hasB = b.next();
+                    if (!hasB || b.value != a.value) result.add((int) a.value);
+                }
+            } else {
+                forEach(value -> {
+                    if (!other.contains(value)) result.add(value);
+                });
+            }
+            return result;
+        }
+
+        @Override
+        public void forEach(IntConsumer action) {
+            Cursor cursor = new Cursor(this);
+            while (cursor.next()) action.accept((int) cursor.value);
+        }
+
+        @Override
+        public String toString() {
+            return PIEBitmap.asBitmap(this).toString();
+        }
+    }
+
+    private static final class SkipIndex {
+        final long[] values; // unsigned element values, ascending
+        final int[] positions; // byte position just after each of those elements
+
+        SkipIndex(long[] values, int[] positions) {
+            this.values = values;
+            this.positions = positions;
+        }
+    }
+
+    // ----------- Sequential decoder over one mapped set -----------
+    private static final class Cursor {
+        private final ByteBuffer in;
+        private long value;
+
+        Cursor(MappedSet set) {
+            this.in = set.data.duplicate();
+        }
+
+        // Resumes after an element whose value and end position are known
+        Cursor(MappedSet set, int position, long value) {
+            this(set);
+            this.in.position(position);
+            this.value = value;
+        }
+
+        boolean next() {
+            if (!in.hasRemaining()) return false;
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = in.get();
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += gap;
+            return true;
+        }
+    }
+
+    private static int[] sortedUnsigned(PIESet set) {
+        int[] values = new int[Math.toIntExact(set.cardinality())];
+        int[] n = {0};
+        set.forEach(value -> values[n[0]++] = value ^ Integer.MIN_VALUE);
+        Arrays.sort(values);
+        for (int i = 0; i < values.length; i++) values[i] ^= Integer.MIN_VALUE;
+        return values;
+    }
+
+    // ----------- Gap + varint encoder for one set at a time -----------
+    private static final class Encoder implements IntConsumer {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long previous;
+        private long count;
+
+        Encoder(FileChannel out) {
+            this.out = out;
+        }
+
+        void reset() {
+            previous = 0;
+            count = 0;
+        }
+
+        @Override
+        public void accept(int value) {
+            long current = Integer.toUnsignedLong(value);
+            if (buffer.remaining() < 10) flush();
+            long gap = current - previous;
+            while ((gap & ~0x7FL) != 0) {
+                buffer.put((byte) ((gap & 0x7F) | 0x80));
+                gap >>>= 7;
+            }
+            buffer.put((byte) gap);
+            previous = current;
+            count++;
+        }
+
+        void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) out.write(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,122 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Round trips through the store codec, and mapped-set operations against HashPIESet. */
+class PIESetStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static Set<Integer> contents(PIESet set) {
+        Set<Integer> values = new HashSet<>();
+        set.forEach(values::add);
+        return values;
+    }
+
+    private static HashPIESet randomSet(Random random) {
+        HashPIESet set = new HashPIESet();
+        int size = random.nextInt(4) == 0 ? 0 : random.nextInt(20_000);
+        int range = random.nextBoolean() ? 50_000 : Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) set.add(random.nextInt(range) - (random.nextBoolean() ? range / 2 : 0));
+        if (random.nextBoolean()) {
+            set.add(Integer.MIN_VALUE);
+            set.add(Integer.MAX_VALUE);
+            set.add(-1);
+            set.add(0);
+        }
+        return set;
+    }
+
+    @Test
+    void roundTripKeepsNamesAndElements() throws IOException {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            int count = 1 + random.nextInt(5);
+            String[] names = new String[count];
+            List<PIESet> sets = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                names[i] = "Set ∩ " + i + (random.nextBoolean() ? "é" : "");
+                HashPIESet reference = randomSet(random);
+                // every backend must encode the same way
+                PIESet stored = PIESetBackend.values()[random.nextInt(PIESetBackend.values().length)].create();
+                reference.forEach(stored::add);
+                sets.add(stored);
+            }
+
+            Path file = directory.resolve("round" + round + ".pies");
+            PIESetStore.write(file, names, sets);
+            try (PIESetStore store = PIESetStore.open(file)) {
+                assertArrayEquals(names, store.names());
+                for (int i = 0; i < count; i++) {
+                    PIESetStore.MappedSet mapped = store.set(i);
+                    assertEquals(contents(sets.get(i)), contents(mapped));
+                    assertEquals(sets.get(i).cardinality(), mapped.cardinality());
+                    for (int probe = 0; probe < 200; probe++) {
+                        int value = random.nextInt(60_000) - 30_000;
+                        assertEquals(sets.get(i).contains(value), mapped.contains(value), "contains " + value);
+                    }
+                    PIESet stored = sets.get(i);
+                    stored.forEach(value -> assertTrue(mapped.contains(value), "contains " + value));
+                }
+            }
+        }
+    }
+
+    @Test
+    void mappedOperationsMatchHashSet() throws IOException {
+        Random random = new Random(6);
+        for (int round = 0; round < 20; round++) {
+            HashPIESet a = randomSet(random);
+            HashPIESet b = randomSet(random);
+            Path file = directory.resolve("ops" + round + ".pies");
+            PIESetStore.write(file, new String[] {"A", "B"}, List.of(a, b));
+            try (PIESetStore store = PIESetStore.open(file)) {
+                PIESet ma = store.set("A");
+                PIESet mb = store.set("B");
+                PIEBitmap bitmapB = PIEBitmap.asBitmap(b);
+                assertEquals(contents(a.and(b)), contents(ma.and(mb)));
+                assertEquals(contents(a.or(b)), contents(ma.or(mb)));
+                assertEquals(contents(a.andNot(b)), contents(ma.andNot(mb)));
+                assertEquals(contents(a.and(b)), contents(ma.and(bitmapB)));
+                assertEquals(contents(a.and(b)), contents(bitmapB.and(ma)));
+                assertEquals(contents(b.andNot(a)), contents(bitmapB.andNot(ma)));
+                assertEquals(contents(b.or(a)), contents(bitmapB.or(ma)));
+                assertEquals(a.and(b).cardinality(), ma.andCardinality(mb));
+                assertEquals(a.and(b).cardinality(), ma.andCardinality(bitmapB));
+                assertEquals(a.and(b).cardinality(), a.andCardinality(mb));
+                // a small operand probes the mapped set through its skip index
+                HashPIESet probes = new HashPIESet();
+                for (int i = 0; i < 20; i++) probes.add(random.nextInt(50_000) - 25_000);
+                assertEquals(contents(a.and(probes)), contents(ma.and(probes)));
+                assertEquals(a.and(probes).cardinality(), ma.andCardinality(probes));
+
+                List<PIESetStore.MappedSet> both = store.sets();
+                assertEquals(contents(a.or(b)), contents(PIESetStore.union(both)));
+                assertEquals(a.or(b).cardinality(), PIESetStore.unionCardinality(both));
+                assertEquals(contents(b.andNot(a)), contents(PIESetStore.complement(both, store.set("A"))));
+                assertEquals(b.andNot(a).cardinality(), PIESetStore.complementCardinality(both, store.set("A")));
+            }
+        }
+    }
+
+    @Test
+    void rejectsNamesTooLongForTheHeader() {
+        String name = "x".repeat(0x10000);
+        assertThrows(IllegalArgumentException.class,
+                () -> PIESetStore.write(directory.resolve("long.pies"), new String[] {name}, List.of(new HashPIESet())));
+    }
+
+    @Test
+    void rejectsForeignFiles() throws IOException {
+        Path file = directory.resolve("not-a-store");
+        Files.writeString(file, "hello, this is not a set store");
+        assertThrows(IOException.class, () -> PIESetStore.open(file));
+    }
+}
@@ -0,0 +1,103 @@
+package src;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * PIESetWriter - hands the elements of a result set out piece by piece instead of as
+ * one toString(). forEachPage() fills a single reused int[] page; write() encodes
+ * elements as ASCII straight into a fixed byte buffer and flushes it to a channel
+ * whenever it is full. Either way the memory used is fixed, whatever the set size.
+ */
+public final class PIESetWriter {
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private static final int CHUNK_BYTES = 1 << 16;
+
+    // Longest element text: "-2147483648" plus the line separator
+    private static final int MAX_ELEMENT_BYTES = 12;
+
+    // Prevent instantiation
+    private PIESetWriter() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ----------- Pages of up to pageSize elements; the page array is reused between calls -----------
+    public static long forEachPage(PIESet set, int pageSize, ObjIntConsumer<int[]> page) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        int[] buffer = new int[pageSize];
+        int[] n = {0};
+        long[] total = {0};
+        set.forEach(value -> {
+            buffer[n[0]++] = value;
+            if (n[0] == pageSize) {
+                page.accept(buffer, pageSize);
+                total[0] += pageSize;
+                n[0] = 0;
+            }
+        });
+        if (n[0] > 0) page.accept(buffer, n[0]);
+        return total[0] + n[0];
+    }
+
+    // "1, 2, 3" for the first count values of a page
+    public static String format(int[] page, int count) {
+        StringBuilder sb = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(page[i]);
+        }
+        return sb.toString();
+    }
+
+    // ----------- One element per line to a channel, in CHUNK_BYTES writes; returns the element count -----------
+    public static long write(PIESet set, WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+        long[] count = {0};
+        try {
+            set.forEach(value -> {
+                if (buffer.remaining() < MAX_ELEMENT_BYTES) flush(buffer, out);
+                putDecimal(buffer, value);
+                buffer.put((byte) '\n');
+                count[0]++;
+            });
+            flush(buffer, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    // Decimal digits without going through a String
+    private static void putDecimal(ByteBuffer buffer, int value) {
+        long v = value;
+        if (v < 0) {
+            buffer.put((byte) '-');
+            v = -v;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + v % 10));
+            v /= 10;
+        } while (v != 0);
+        // digits went in least significant first
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte digit = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, digit);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel out) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) out.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,154 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIESketch - fixed-size summary of one set for approximate union / intersection sizes.
+ * Holds a HyperLogLog (cardinality of unions) and a one-permutation MinHash (Jaccard
+ * similarity). Each element is hashed once; the sketch takes about 18 KB whatever the
+ * size of the set.
+ */
+public final class PIESketch {
+
+    // HyperLogLog uses 2^HLL_PRECISION registers: relative standard error 1.04 / sqrt(2^14) ≈ 0.8%
+    public static final int HLL_PRECISION = 14;
+
+    // Number of MinHash bins (one-permutation hashing)
+    public static final int MINHASH_BINS = 256;
+
+    private static final int REGISTERS = 1 << HLL_PRECISION;
+    private static final int BIN_BITS = Integer.numberOfTrailingZeros(MINHASH_BINS);
+    private static final long EMPTY_BIN = Long.MAX_VALUE;
+
+    private final byte[] registers = new byte[REGISTERS];
+    private final long[] minHashes = new long[MINHASH_BINS];
+
+    public PIESketch() {
+        Arrays.fill(minHashes, EMPTY_BIN);
+    }
+
+    // ----------- Estimate with a one-sigma error bound -----------
+    public static final class Estimate {
+        private final double value;
+        private final double stdError;
+
+        Estimate(double value, double stdError) {
+            this.value = value;
+            this.stdError = stdError;
+        }
+
+        public double value() {
+            return value;
+        }
+
+        public double stdError() {
+            return stdError;
+        }
+
+        @Override
+        public String toString() {
+            return Math.round(value) + " ± " + Math.round(stdError);
+        }
+    }
+
+    public void add(long element) {
+        long hash = mix(element);
+
+        int index = (int) (hash >>> (64 - HLL_PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << HLL_PRECISION) | (1L << (HLL_PRECISION - 1))) + 1);
+        if (rank > registers[index]) registers[index] = rank;
+
+        int bin = (int) (hash & (MINHASH_BINS - 1));
+        long value = hash >>> BIN_BITS;
+        if (value < minHashes[bin]) minHashes[bin] = value;
+    }
+
+    // ----------- |A| -----------
+    public Estimate cardinality() {
+        return union(List.of(this));
+    }
+
+    // ----------- |A ∪ B ∪ ...| from register-wise max of the HyperLogLogs -----------
+    public static Estimate union(List<PIESketch> sketches) {
+        byte[] merged = new byte[REGISTERS];
+        for (PIESketch sketch : sketches) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (sketch.registers[i] > merged[i]) merged[i] = sketch.registers[i];
+            }
+        }
+        double value = hllEstimate(merged);
+        return new Estimate(value, value * 1.04 / Math.sqrt(REGISTERS));
+    }
+
+    // ----------- Jaccard similarity |A ∩ B| / |A ∪ B| from MinHash bins -----------
+    public static double jaccard(PIESketch a, PIESketch b) {
+        int used = 0;
+        int equal = 0;
+        for (int i = 0; i < MINHASH_BINS; i++) {
+            if (a.minHashes[i] == EMPTY_BIN && b.minHashes[i] == EMPTY_BIN) continue;
+            used++;
+            if (a.minHashes[i] == b.minHashes[i]) equal++;
+        }
+        return used == 0 ? 0 : (double) equal / used;
+    }
+
+    /**
+     * |∩ sketches|. Two sets use MinHash (J · |A ∪ B|); three or more use Inclusion-Exclusion
+     * over union estimates of every subset, so the error grows with the number of sets.
+     */
+    public static Estimate intersection(List<PIESketch> sketches) {
+        int n = sketches.size();
+        if (n == 1) return sketches.get(0).cardinality();
+        if (n == 2) {
+            Estimate union = union(sketches);
+            double j = jaccard(sketches.get(0), sketches.get(1));
+            double jError = Math.sqrt(Math.max(j * (1 - j), 1.0 / MINHASH_BINS) / MINHASH_BINS);
+            double value = j * union.value();
+            double error = Math.hypot(union.value() * jError, j * union.stdError());
+            return new Estimate(value, error);
+        }
+        if (n > PIEMaskEngine.MAX_SETS) {
+            throw new IllegalArgumentException("Too many sets: " + n);
+        }
+
+        double value = 0;
+        double variance = 0;
+        List<PIESketch> members = new ArrayList<>(n);
+        PIESubsets.Cursor subset = PIESubsets.cursor(n);
+        while (subset.next()) {
+            members.clear();
+            for (int i = 0; i < subset.size(); i++) members.add(sketches.get(subset.get(i)));
+            Estimate term = union(members);
+            value += PIEMaskEngine.sign(subset.mask()) * term.value();
+            variance += term.stdError() * term.stdError();
+        }
+        return new Estimate(Math.max(0, value), Math.sqrt(variance));
+    }
+
+    // ----------- HyperLogLog estimate with linear counting for small sets -----------
+    private static double hllEstimate(byte[] registers) {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += Math.scalb(1.0, -r);
+            if (r == 0) zeros++;
+        }
+        double m = registers.length;
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log(m / zeros);
+        }
+        return estimate;
+    }
+
+    // ----------- 64-bit finaliser (MurmurHash3 fmix64) -----------
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
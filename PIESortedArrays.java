@@ -0,0 +1,244 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIESortedArrays - intersection of sorted, duplicate-free primitive arrays.
+ * When one side is much longer than the other, each element of the short side is
+ * located in the long side by galloping (exponential then binary search), costing
+ * O(m log(n / m)) instead of O(m + n). Otherwise both sides are merged linearly.
+ * Multi-way intersections always start from the smallest array.
+ */
+public final class PIESortedArrays {
+
+    // Galloping is used once the longer array is this many times the shorter one
+    public static final int GALLOP_RATIO = 32;
+
+    // Prevent instantiation
+    private PIESortedArrays() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ----------- int[] -----------
+
+    public static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        return Arrays.copyOf(out, intersect(a, a.length, b, b.length, out));
+    }
+
+    /**
+     * Writes a[0 .. aLength) ∩ b[0 .. bLength) to out and returns its length.
+     * out needs room for min(aLength, bLength) values and may be a or b itself.
+     */
+    public static int intersect(int[] a, int aLength, int[] b, int bLength, int[] out) {
+        if (aLength > bLength) return intersect(b, bLength, a, aLength, out);
+        if (aLength == 0) return 0;
+        if (bLength / aLength >= GALLOP_RATIO) {
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < aLength; i++) {
+                int key = a[i];
+                j = advance(b, j, bLength, key);
+                if (j == bLength) break;
+                if (b[j] == key) out[n++] = key;
+            }
+            return n;
+        }
+        // Both indices advance on comparison results rather than an if/else chain
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aLength && j < bLength) {
+            int x = a[i];
+            int y = b[j];
+            if (x == y) out[n++] = x;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return n;
+    }
+
+    // |a[0 .. aLength) ∩ b[0 .. bLength)| without writing the intersection
+    public static int intersectionSize(int[] a, int aLength, int[] b, int bLength) {
+        if (aLength > bLength) return intersectionSize(b, bLength, a, aLength);
+        if (aLength == 0) return 0;
+        int n = 0;
+        if (bLength / aLength >= GALLOP_RATIO) {
+            int j = 0;
+            for (int i = 0; i < aLength; i++) {
+                j = advance(b, j, bLength, a[i]);
+                if (j == bLength) break;
+                if (b[j] == a[i]) n++;
+            }
+            return n;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < aLength && j < bLength) {
+            int x = a[i];
+            int y = b[j];
+            n += x == y ? 1 : 0;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return n;
+    }
+
+    // ----------- ∩ of all arrays, smallest first, with a single working copy -----------
+    public static int[] intersectAll(int[]... sets) {
+        if (sets.length == 0) return new int[0];
+        int[][] bySize = sets.clone();
+        Arrays.sort(bySize, Comparator.comparingInt(array -> array.length));
+        int[] result = bySize[0].clone();
+        int n = result.length;
+        for (int k = 1; k < bySize.length && n > 0; k++) {
+            int[] next = bySize[k];
+            n = intersect(result, n, next, next.length, result);
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // First index >= from whose value is >= key, searching b[from .. length)
+    private static int advance(int[] b, int from, int length, int key) {
+        if (from >= length || b[from] >= key) return from;
+        int lo = from; // b[lo] < key
+        int step = 1;
+        int hi = from + 1;
+        while (hi < length && b[hi] < key) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        int found = Arrays.binarySearch(b, lo + 1, Math.min(hi, length), key);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    // ----------- long[] -----------
+
+    public static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        return Arrays.copyOf(out, intersect(a, a.length, b, b.length, out));
+    }
+
+    public static int intersect(long[] a, int aLength, long[] b, int bLength, long[] out) {
+        if (aLength > bLength) return intersect(b, bLength, a, aLength, out);
+        if (aLength == 0) return 0;
+        if (bLength / aLength >= GALLOP_RATIO) {
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < aLength; i++) {
+                long key = a[i];
+                j = advance(b, j, bLength, key);
+                if (j == bLength) break;
+                if (b[j] == key) out[n++] = key;
+            }
+            return n;
+        }
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aLength && j < bLength) {
+            long x = a[i];
+            long y = b[j];
+            if (x == y) out[n++] = x;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return n;
+    }
+
+    public static long[] intersectAll(long[]... sets) {
+        if (sets.length == 0) return new long[0];
+        long[][] bySize = sets.clone();
+        Arrays.sort(bySize, Comparator.comparingInt(array -> array.length));
+        long[] result = bySize[0].clone();
+        int n = result.length;
+        for (int k = 1; k < bySize.length && n > 0; k++) {
+            long[] next = bySize[k];
+            n = intersect(result, n, next, next.length, result);
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int advance(long[] b, int from, int length, long key) {
+        if (from >= length || b[from] >= key) return from;
+        int lo = from;
+        int step = 1;
+        int hi = from + 1;
+        while (hi < length && b[hi] < key) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        int found = Arrays.binarySearch(b, lo + 1, Math.min(hi, length), key);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    // ----------- char[] (PIEBitmap array containers) -----------
+
+    static int intersect(char[] a, int aLength, char[] b, int bLength, char[] out) {
+        if (aLength > bLength) return intersect(b, bLength, a, aLength, out);
+        if (aLength == 0) return 0;
+        if (bLength / aLength >= GALLOP_RATIO) {
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < aLength; i++) {
+                char key = a[i];
+                j = advance(b, j, bLength, key);
+                if (j == bLength) break;
+                if (b[j] == key) out[n++] = key;
+            }
+            return n;
+        }
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aLength && j < bLength) {
+            char x = a[i];
+            char y = b[j];
+            if (x == y) out[n++] = x;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return n;
+    }
+
+    static int intersectionSize(char[] a, int aLength, char[] b, int bLength) {
+        if (aLength > bLength) return intersectionSize(b, bLength, a, aLength);
+        if (aLength == 0) return 0;
+        int n = 0;
+        if (bLength / aLength >= GALLOP_RATIO) {
+            int j = 0;
+            for (int i = 0; i < aLength; i++) {
+                j = advance(b, j, bLength, a[i]);
+                if (j == bLength) break;
+                if (b[j] == a[i]) n++;
+            }
+            return n;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < aLength && j < bLength) {
+            char x = a[i];
+            char y = b[j];
+            n += x == y ? 1 : 0;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return n;
+    }
+
+    private static int advance(char[] b, int from, int length, char key) {
+        if (from >= length || b[from] >= key) return from;
+        int lo = from;
+        int step = 1;
+        int hi = from + 1;
+        while (hi < length && b[hi] < key) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        int found = Arrays.binarySearch(b, lo + 1, Math.min(hi, length), key);
+        return found >= 0 ? found : -found - 1;
+    }
+}
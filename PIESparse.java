@@ -0,0 +1,120 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIESparse - Inclusion-Exclusion over only the intersections that were supplied.
+ * Each key is parsed into a long mask once (up to 64 sets) and every missing
+ * intersection is taken as 0, so the cost depends on the number of keys, not on 2^n.
+ * Missing terms are only sound if they really are empty, which is checked: a supplied
+ * non-zero intersection must have all of its immediate sub-intersections supplied and
+ * non-zero as well (by induction every intersection it contains is then non-zero).
+ */
+public final class PIESparse {
+
+    // Largest n for which a subset fits in a long mask
+    public static final int MAX_SETS = Long.SIZE;
+
+    // Prevent instantiation
+    private PIESparse() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ----------- Is the sparse path cheaper than a dense walk over 2^n masks? -----------
+    public static boolean preferred(int suppliedKeys, int n) {
+        if (n > PIEMaskEngine.MAX_SETS) return true;
+        // a sparse term costs a hash lookup per member set, a dense one an array read
+        return (long) suppliedKeys * n * 8 < (1L << n);
+    }
+
+    // ----------- Parse keys into mask -> size, dropping zero terms -----------
+    public static Map<Long, Long> terms(Map<String, ? extends Number> data, String[] setNames) {
+        int n = setNames.length;
+        if (n > MAX_SETS) throw new IllegalArgumentException("Too many sets: " + n + " > " + MAX_SETS);
+
+        long start = PIEMetrics.start();
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) index.put(setNames[i].strip(), i);
+
+        Map<Long, Long> terms = new HashMap<>();
+        for (Map.Entry<String, ? extends Number> entry : data.entrySet()) {
+            long mask = maskOf(entry.getKey(), index);
+            long value = entry.getValue().longValue();
+            if (value != 0) terms.put(mask, value);
+        }
+        PIEMetrics.record(PIEMetrics.Phase.GENERATE, start, data.size());
+        return terms;
+    }
+
+    /**
+     * Every non-zero term whose immediate sub-intersections are not all non-zero,
+     * described as "A∩B∩C = 4 but A∩C is 0 or missing". Empty if consistent.
+     */
+    public static List<String> inconsistencies(Map<Long, Long> terms, String[] setNames) {
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : terms.entrySet()) {
+            long mask = entry.getKey();
+            if (Long.bitCount(mask) < 2) continue;
+            for (long bits = mask; bits != 0; bits &= bits - 1) {
+                long sub = mask & ~Long.lowestOneBit(bits);
+                if (!terms.containsKey(sub)) {
+                    problems.add(key(mask, setNames) + " = " + entry.getValue() + " but "
+                            + key(sub, setNames) + " is 0 or missing");
+                }
+            }
+        }
+        return problems;
+    }
+
+    // ----------- Throws IllegalArgumentException listing every inconsistency -----------
+    public static void requireConsistent(Map<Long, Long> terms, String[] setNames) {
+        List<String> problems = inconsistencies(terms, setNames);
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("Inconsistent intersections: " + String.join("; ", problems));
+        }
+    }
+
+    // ----------- |A ∪ B ∪ ...| from the supplied terms only -----------
+    public static PIETotal union(Map<String, ? extends Number> data, String[] setNames) {
+        Map<Long, Long> terms = terms(data, setNames);
+        requireConsistent(terms, setNames);
+        return union(terms);
+    }
+
+    public static PIETotal union(Map<Long, Long> terms) {
+        long start = PIEMetrics.start();
+        PIETotal.Accumulator total = new PIETotal.Accumulator();
+        for (Map.Entry<Long, Long> entry : terms.entrySet()) {
+            if ((Long.bitCount(entry.getKey()) & 1) == 1) total.add(entry.getValue());
+            else total.subtract(entry.getValue());
+        }
+        PIEMetrics.record(PIEMetrics.Phase.SUM, start, terms.size());
+        return total.result();
+    }
+
+    // ----------- "A∩B∩C" -> long mask (bit 63 makes masks negative) -----------
+    // Rejects unknown and repeated names like PIEMaskEngine.maskOf
+    static long maskOf(String key, Map<String, Integer> index) {
+        long mask = 0;
+        int start = 0;
+        while (start <= key.length()) {
+            int end = key.indexOf('∩', start);
+            if (end < 0) end = key.length();
+            String name = key.substring(start, end).strip();
+            Integer idx = index.get(name);
+            if (idx == null) throw new IllegalArgumentException("Unknown set '" + name + "' in " + key);
+            if ((mask & 1L << idx) != 0) throw new IllegalArgumentException("Set '" + name + "' repeated in " + key);
+            mask |= 1L << idx;
+            start = end + 1;
+        }
+        return mask;
+    }
+
+    public static String key(long mask, String[] setNames) {
+        StringJoiner sj = new StringJoiner("∩");
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            sj.add(setNames[Long.numberOfTrailingZeros(bits)]);
+        }
+        return sj.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package src;
+
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * PIESubsets - lazy walk over the non-empty subsets of n sets.
+ * Nothing is materialised: memory stays O(n) however many subsets there are.
+ */
+public final class PIESubsets {
+
+    // Prevent instantiation
+    private PIESubsets() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ----------- All non-empty subset masks, in ascending order -----------
+    public static IntStream masks(int n) {
+        checkSize(n);
+        return IntStream.range(1, 1 << n);
+    }
+
+    // ----------- Cursor over subsets with a reused member buffer -----------
+    public static Cursor cursor(int n) {
+        checkSize(n);
+        return new Cursor(n);
+    }
+
+    // ----------- Member indices as a List<Integer>; the list is reused between steps -----------
+    public static Iterable<List<Integer>> lists(int n) {
+        checkSize(n);
+        return () -> new Iterator<>() {
+            private final Cursor cursor = new Cursor(n);
+            private final List<Integer> subset = new ArrayList<>(n);
+            private boolean advanced;
+            private boolean more;
+
+            @Override
+            public boolean hasNext() {
+                if (!advanced) {
+                    more = cursor.next();
+                    advanced = true;
+                }
+                return more;
+            }
+
+            @Override
+            public List<Integer> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                advanced = false;
+                subset.clear();
+                for (int i = 0; i < cursor.size(); i++) subset.add(cursor.get(i));
+                return subset;
+            }
+        };
+    }
+
+    private static void checkSize(int n) {
+        if (n < 0 || n > PIEMaskEngine.MAX_SETS) {
+            throw new IllegalArgumentException("Number of sets must be between 0 and " + PIEMaskEngine.MAX_SETS);
+        }
+    }
+
+    /**
+     * Walks masks 1 .. 2^n - 1. After each successful next() the indices of the
+     * member sets are available through get(0 .. size() - 1).
+     */
+    public static final class Cursor {
+        private final int n;
+        private final int end;
+        private final int[] members;
+        private int mask;
+        private int size;
+
+        private Cursor(int n) {
+            this.n = n;
+            this.end = 1 << n;
+            this.members = new int[n];
+        }
+
+        public boolean next() {
+            if (mask + 1 >= end) return false;
+            mask++;
+            size = 0;
+            for (int i = 0; i < n; i++) {
+                if ((mask & (1 << i)) != 0) members[size++] = i;
+            }
+            return true;
+        }
+
+        public int mask() {
+            return mask;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int i) {
+            if (i >= size) throw new IndexOutOfBoundsException(i);
+            return members[i];
+        }
+    }
+}
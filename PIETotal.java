@@ -0,0 +1,135 @@
+package src;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * PIETotal - result of an Inclusion-Exclusion sum together with the precision used.
+ * Sums run in long with overflow checks and only move to BigInteger once a long
+ * would overflow, so the common case allocates nothing.
+ */
+public final class PIETotal {
+
+    public enum Precision { LONG, BIG_INTEGER }
+
+    public static final PIETotal ZERO = new PIETotal(0, null);
+
+    private final long small;
+    private final BigInteger big; // null while the value fits in a long
+
+    private PIETotal(long small, BigInteger big) {
+        this.small = small;
+        this.big = big;
+    }
+
+    public static PIETotal of(long value) {
+        return value == 0 ? ZERO : new PIETotal(value, null);
+    }
+
+    public static PIETotal of(BigInteger value) {
+        return new PIETotal(0, Objects.requireNonNull(value));
+    }
+
+    public Precision precision() {
+        return big == null ? Precision.LONG : Precision.BIG_INTEGER;
+    }
+
+    // ----------- Value as long; throws if it does not fit -----------
+    public long longValue() {
+        return big == null ? small : big.longValueExact();
+    }
+
+    public BigInteger bigValue() {
+        return big == null ? BigInteger.valueOf(small) : big;
+    }
+
+    public int signum() {
+        return big == null ? Long.signum(small) : big.signum();
+    }
+
+    public PIETotal plus(PIETotal other) {
+        Accumulator acc = new Accumulator();
+        acc.add(this);
+        acc.add(other);
+        return acc.result();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PIETotal)) return false;
+        return bigValue().equals(((PIETotal) o).bigValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return bigValue().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return big == null ? Long.toString(small) : big.toString();
+    }
+
+    /**
+     * Running sum. Stays on a primitive long via Math.addExact and switches to
+     * BigInteger the first time an addition overflows.
+     */
+    public static final class Accumulator {
+        private long small;
+        private BigInteger big;
+
+        public void add(long value) {
+            if (big == null) {
+                try {
+                    small = Math.addExact(small, value);
+                    return;
+                } catch (ArithmeticException overflow) {
+                    big = BigInteger.valueOf(small);
+                }
+            }
+            big = big.add(BigInteger.valueOf(value));
+        }
+
+        public void subtract(long value) {
+            if (big == null) {
+                try {
+                    small = Math.subtractExact(small, value);
+                    return;
+                } catch (ArithmeticException overflow) {
+                    big = BigInteger.valueOf(small);
+                }
+            }
+            big = big.subtract(BigInteger.valueOf(value));
+        }
+
+        public void add(PIETotal value) {
+            if (value.big == null) {
+                add(value.small);
+            } else {
+                big = (big == null ? BigInteger.valueOf(small) : big).add(value.big);
+            }
+        }
+
+        public void subtract(PIETotal value) {
+            if (value.big == null) {
+                subtract(value.small);
+            } else {
+                big = (big == null ? BigInteger.valueOf(small) : big).subtract(value.big);
+            }
+        }
+
+        public int signum() {
+            return big == null ? Long.signum(small) : big.signum();
+        }
+
+        public PIETotal result() {
+            return big == null ? of(small) : of(big);
+        }
+
+        @Override
+        public String toString() {
+            return big == null ? Long.toString(small) : big.toString();
+        }
+    }
+}
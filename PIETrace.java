@@ -0,0 +1,248 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * PIETrace - optional step trace for an Inclusion-Exclusion run.
+ * The solving thread only records (mask, value) pairs into a preallocated ring buffer;
+ * one shared daemon writer, started on first use, drains the rings of all open traces,
+ * turns entries into text and hands them to each trace's sink. With level NONE nothing
+ * is recorded and no string is ever built. A producer that finds its ring full parks
+ * until the writer has made room.
+ *
+ * Traces made with startDirect() have no ring: each line is formatted and passed to the
+ * sink on the calling thread. That suits cheap in-memory sinks, such as one request's
+ * StringBuilder in PIEServer, and keeps concurrent traces from sharing any state.
+ *
+ * If a sink throws, the trace stops writing and discards further entries; the next
+ * term()/text() call, or else close(), throws IllegalStateException with the cause.
+ */
+public final class PIETrace implements AutoCloseable {
+
+    public enum Level {
+        NONE, SUMMARY, PER_LEVEL, PER_TERM;
+
+        // -Dpie.trace=none|summary|per_level|per_term (summary by default)
+        public static Level fromSystemProperty() {
+            String name = System.getProperty("pie.trace", "summary");
+            return valueOf(name.trim().toUpperCase(java.util.Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    // How a single term is printed: "Add A∩B = 5 -> 12" or "Add A∩B = +5 -> 12"
+    public enum TermFormat { PLAIN, SIGNED }
+
+    public static final int RING_CAPACITY = 1 << 12;
+
+    private static final PIETrace DISABLED = new PIETrace();
+
+    // Traces with entries still to be written, and the writer that drains them
+    private static final Queue<PIETrace> OPEN = new ConcurrentLinkedQueue<>();
+    private static Thread sharedWriter;
+
+    private final Level level;
+    private final String[] setNames;
+    private final Consumer<String> sink;
+    private final TermFormat format;
+
+    // Ring slots: a term has a mask and value, a text message has text != null
+    private final int[] masks;
+    private final long[] values;
+    private final String[] texts;
+    private final AtomicLong head = new AtomicLong(); // next slot to write
+    private final AtomicLong tail = new AtomicLong(); // next slot to drain
+    private final Thread writer;
+    private final boolean direct; // lines go to the sink on the calling thread
+    private volatile Thread waiter; // parked in claim() or close() until the writer drains
+    private volatile RuntimeException failure; // thrown by the sink
+    private boolean reported;
+
+    // Running total as seen by the writer, used for the "-> total" column
+    private final PIETotal.Accumulator running = new PIETotal.Accumulator();
+
+    private PIETrace() {
+        this.level = Level.NONE;
+        this.setNames = null;
+        this.sink = null;
+        this.format = TermFormat.PLAIN;
+        this.masks = null;
+        this.values = null;
+        this.texts = null;
+        this.writer = null;
+        this.direct = false;
+    }
+
+    private PIETrace(Level level, String[] setNames, Consumer<String> sink, TermFormat format, boolean direct) {
+        this.level = level;
+        this.setNames = setNames;
+        this.sink = sink;
+        this.format = format;
+        this.direct = direct;
+        if (direct) {
+            this.masks = null;
+            this.values = null;
+            this.texts = null;
+            this.writer = null;
+            return;
+        }
+        this.masks = new int[RING_CAPACITY];
+        this.values = new long[RING_CAPACITY];
+        this.texts = new String[RING_CAPACITY];
+        this.writer = writer();
+        OPEN.add(this);
+        LockSupport.unpark(writer);
+    }
+
+    // The shared writer, started again if it ever died
+    private static synchronized Thread writer() {
+        if (sharedWriter == null || !sharedWriter.isAlive()) {
+            sharedWriter = new Thread(PIETrace::drainAll, "pie-trace-writer");
+            sharedWriter.setDaemon(true);
+            sharedWriter.start();
+        }
+        return sharedWriter;
+    }
+
+    public static PIETrace start(Level level, String[] setNames, Consumer<String> sink) {
+        return start(level, setNames, sink, TermFormat.PLAIN);
+    }
+
+    public static PIETrace start(Level level, String[] setNames, Consumer<String> sink, TermFormat format) {
+        return level == Level.NONE ? DISABLED : new PIETrace(level, setNames, sink, format, false);
+    }
+
+    // ----------- Synchronous trace: no ring and no writer thread -----------
+    public static PIETrace startDirect(Level level, String[] setNames, Consumer<String> sink) {
+        return level == Level.NONE ? DISABLED : new PIETrace(level, setNames, sink, TermFormat.PLAIN, true);
+    }
+
+    public boolean enabled(Level wanted) {
+        return level.compareTo(wanted) >= 0;
+    }
+
+    // ----------- One signed term; the writer builds the key and running total -----------
+    public void term(int mask, long value) {
+        if (level != Level.PER_TERM) return;
+        if (direct) {
+            write(formatTerm(mask, value));
+            return;
+        }
+        int slot = claim();
+        masks[slot] = mask;
+        values[slot] = value;
+        texts[slot] = null;
+        publish();
+    }
+
+    // ----------- Free-form message (summary and per-level lines) -----------
+    public void text(String message) {
+        if (level == Level.NONE) return;
+        if (direct) {
+            write(message);
+            return;
+        }
+        int slot = claim();
+        texts[slot] = message;
+        publish();
+    }
+
+    // Waits for the writer to drain everything recorded so far
+    @Override
+    public void close() {
+        if (writer == null) return;
+        waiter = Thread.currentThread();
+        while (tail.get() < head.get()) {
+            checkWriter();
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, 1_000_000);
+        }
+        waiter = null;
+        OPEN.remove(this);
+        checkFailure();
+    }
+
+    private int claim() {
+        checkFailure();
+        long h = head.get();
+        if (h - tail.get() >= RING_CAPACITY) {
+            // full: park until the writer drains this ring (it unparks the waiter), never spin
+            waiter = Thread.currentThread();
+            while (h - tail.get() >= RING_CAPACITY) {
+                checkFailure();
+                checkWriter();
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(this, 1_000_000);
+            }
+            waiter = null;
+        }
+        return (int) (h & (RING_CAPACITY - 1));
+    }
+
+    // Reports a sink failure once, to the solving thread
+    private void checkFailure() {
+        if (failure != null && !reported) {
+            reported = true;
+            throw new IllegalStateException("Trace output failed", failure);
+        }
+    }
+
+    private void checkWriter() {
+        if (!writer.isAlive()) throw new IllegalStateException("Trace writer thread has died");
+    }
+
+    private void publish() {
+        head.lazySet(head.get() + 1);
+    }
+
+    // Body of the shared writer: round-robin over the open traces, parked while all are empty
+    private static void drainAll() {
+        while (true) {
+            boolean wrote = false;
+            for (PIETrace trace : OPEN) wrote |= trace.drain();
+            if (OPEN.isEmpty()) LockSupport.park();
+            else if (!wrote) LockSupport.parkNanos(50_000);
+        }
+    }
+
+    // Writes everything recorded so far; returns whether there was anything
+    private boolean drain() {
+        long t = tail.get();
+        long h = head.get();
+        if (t == h) return false;
+        for (; t < h; t++) {
+            if (failure == null) {
+                long start = PIEMetrics.start();
+                int slot = (int) (t & (RING_CAPACITY - 1));
+                String text = texts[slot];
+                try {
+                    sink.accept(text != null ? text : formatTerm(masks[slot], values[slot]));
+                } catch (RuntimeException e) {
+                    failure = e; // from here on entries are dropped unwritten
+                }
+                PIEMetrics.record(PIEMetrics.Phase.TRACE, start, 1);
+            }
+            tail.set(t + 1); // after the sink call, so a drained trace has finished writing
+        }
+        Thread waiting = waiter;
+        if (waiting != null) LockSupport.unpark(waiting);
+        return true;
+    }
+
+    private void write(String line) {
+        long start = PIEMetrics.start();
+        sink.accept(line);
+        PIEMetrics.record(PIEMetrics.Phase.TRACE, start, 1);
+    }
+
+    private String formatTerm(int mask, long value) {
+        boolean add = PIEMaskEngine.sign(mask) == 1;
+        if (add) running.add(value);
+        else running.subtract(value);
+        String shown = format == TermFormat.SIGNED ? (add ? "+" : "-") + value : Long.toString(value);
+        return (add ? "Add " : "Subtract ") + PIEMaskEngine.key(mask, setNames) + " = " + shown + " -> " + running;
+    }
+}
@@ -0,0 +1,112 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIEValidator - rejects intersection sizes that no real sets could have, before any
+ * Inclusion-Exclusion run. Works on the mask-indexed sizes of PIEMaskEngine:
+ * <ul>
+ *   <li>no size is negative;</li>
+ *   <li>monotonicity: |A∩B∩C| ≤ |A∩B|, |A∩C|, |B∩C| for every intersection
+ *       (checking each immediate sub-intersection covers all of them, O(n·2^n));</li>
+ *   <li>every Venn region ("in exactly these sets") is non-negative, which also
+ *       guarantees a non-negative union.</li>
+ * </ul>
+ * Sizes so large that the regions overflow a long cannot be checked, and are reported
+ * as an OVERFLOW violation rather than passed unchecked.
+ * All violations are collected in one pass instead of stopping at the first.
+ */
+public final class PIEValidator {
+
+    // Prevent instantiation
+    private PIEValidator() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public enum Kind { NEGATIVE_SIZE, NOT_MONOTONE, NEGATIVE_REGION, OVERFLOW }
+
+    // ----------- One violated constraint, identified by mask -----------
+    public static final class Violation {
+        private final Kind kind;
+        private final int mask;
+        private final int subMask; // the sub-intersection it exceeds (NOT_MONOTONE only)
+        private final long value;
+        private final long limit;
+
+        Violation(Kind kind, int mask, int subMask, long value, long limit) {
+            this.kind = kind;
+            this.mask = mask;
+            this.subMask = subMask;
+            this.value = value;
+            this.limit = limit;
+        }
+
+        public Kind kind() {
+            return kind;
+        }
+
+        public int mask() {
+            return mask;
+        }
+
+        public int subMask() {
+            return subMask;
+        }
+
+        public String describe(String[] setNames) {
+            String key = PIEMaskEngine.key(mask, setNames);
+            return switch (kind) {
+                case NEGATIVE_SIZE -> "Size of " + key + " = " + value + " is negative";
+                case NOT_MONOTONE -> "Intersection " + key + " = " + value + " is larger than "
+                        + PIEMaskEngine.key(subMask, setNames) + " = " + limit;
+                case NEGATIVE_REGION -> "Region 'only " + key + "' would hold " + value + " elements";
+                case OVERFLOW -> "Sizes of " + key + " are too large to check the Venn regions exactly";
+            };
+        }
+
+        @Override
+        public String toString() {
+            return kind + " mask=" + Integer.toBinaryString(mask)
+                    + (kind == Kind.NOT_MONOTONE ? " sub=" + Integer.toBinaryString(subMask) : "");
+        }
+    }
+
+    // ----------- Check "A∩B"-keyed sizes (missing keys count as 0) -----------
+    public static List<Violation> validate(Map<String, ? extends Number> data, String[] setNames) {
+        return validate(PIEMaskEngine.fromKeyedMap(data, setNames));
+    }
+
+    public static List<Violation> validate(long[] values) {
+        List<Violation> violations = new ArrayList<>();
+
+        for (int mask = 1; mask < values.length; mask++) {
+            long value = values[mask];
+            if (value < 0) {
+                violations.add(new Violation(Kind.NEGATIVE_SIZE, mask, 0, value, 0));
+            }
+            if ((mask & (mask - 1)) == 0) continue; // single set: nothing above it
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int sub = mask & ~Integer.lowestOneBit(bits);
+                if (value > values[sub]) {
+                    violations.add(new Violation(Kind.NOT_MONOTONE, mask, sub, value, values[sub]));
+                }
+            }
+        }
+
+        // Regions only mean something once the sizes themselves are consistent
+        if (violations.isEmpty()) {
+            try {
+                long[] regions = PIERegions.exactRegions(values);
+                for (int mask = 1; mask < regions.length; mask++) {
+                    if (regions[mask] < 0) {
+                        violations.add(new Violation(Kind.NEGATIVE_REGION, mask, 0, regions[mask], 0));
+                    }
+                }
+            } catch (ArithmeticException overflow) {
+                // sizes near Long.MAX_VALUE: the regions, and so the union's sign, cannot be checked
+                violations.add(new Violation(Kind.OVERFLOW, values.length - 1, 0, 0, 0));
+            }
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,152 @@
+package src;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * SortedArrayPIESet - PIESet backed by a sorted, duplicate-free int[].
+ * add() appends; the array is sorted and deduplicated on the next read, so building
+ * a set costs one sort. Intersections with another sorted-array set use PIESortedArrays.
+ */
+public final class SortedArrayPIESet implements PIESet {
+
+    private int[] values;
+    private int size;
+    private boolean sorted = true;
+
+    public SortedArrayPIESet() {
+        this(new int[8], 0);
+    }
+
+    private SortedArrayPIESet(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public void add(int value) {
+        if (size > 0 && sorted && value <= values[size - 1]) {
+            if (value == values[size - 1]) return;
+            sorted = false;
+        }
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        normalize();
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    public long cardinality() {
+        normalize();
+        return size;
+    }
+
+    @Override
+    public SortedArrayPIESet and(PIESet other) {
+        normalize();
+        if (other instanceof SortedArrayPIESet sortedOther) {
+            sortedOther.normalize();
+            int[] out = new int[Math.min(size, sortedOther.size)];
+            int n = PIESortedArrays.intersect(values, size, sortedOther.values, sortedOther.size, out);
+            return new SortedArrayPIESet(out, n);
+        }
+        int[] out = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (other.contains(values[i])) out[n++] = values[i];
+        }
+        return new SortedArrayPIESet(out, n);
+    }
+
+    @Override
+    public long andCardinality(PIESet other) {
+        normalize();
+        if (other instanceof SortedArrayPIESet sortedOther) {
+            sortedOther.normalize();
+            return PIESortedArrays.intersectionSize(values, size, sortedOther.values, sortedOther.size);
+        }
+        long n = 0;
+        for (int i = 0; i < size; i++) {
+            if (other.contains(values[i])) n++;
+        }
+        return n;
+    }
+
+    @Override
+    public SortedArrayPIESet or(PIESet other) {
+        normalize();
+        if (other instanceof SortedArrayPIESet sortedOther) {
+            sortedOther.normalize();
+            int[] b = sortedOther.values;
+            int[] out = new int[size + sortedOther.size];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < sortedOther.size) {
+                int x = values[i];
+                int y = b[j];
+                out[n++] = Math.min(x, y);
+                i += x <= y ? 1 : 0;
+                j += y <= x ? 1 : 0;
+            }
+            while (i < size) out[n++] = values[i++];
+            while (j < sortedOther.size) out[n++] = b[j++];
+            return new SortedArrayPIESet(out, n);
+        }
+        SortedArrayPIESet result = new SortedArrayPIESet(Arrays.copyOf(values, Math.max(8, size)), size);
+        other.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public SortedArrayPIESet andNot(PIESet other) {
+        normalize();
+        int[] out = new int[size];
+        int n = 0;
+        if (other instanceof SortedArrayPIESet sortedOther) {
+            sortedOther.normalize();
+            int[] b = sortedOther.values;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                int x = values[i];
+                while (j < sortedOther.size && b[j] < x) j++;
+                if (j == sortedOther.size || b[j] != x) out[n++] = x;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                if (!other.contains(values[i])) out[n++] = values[i];
+            }
+        }
+        return new SortedArrayPIESet(out, n);
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        normalize();
+        for (int i = 0; i < size; i++) action.accept(values[i]);
+    }
+
+    @Override
+    public String toString() {
+        normalize();
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < size; i++) joiner.add(Integer.toString(values[i]));
+        return joiner.toString();
+    }
+
+    // Sort and drop duplicates after out-of-order adds
+    private void normalize() {
+        if (sorted) return;
+        Arrays.sort(values, 0, size);
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (n == 0 || values[i] != values[n - 1]) values[n++] = values[i];
+        }
+        size = n;
+        sorted = true;
+    }
+}
@@ -0,0 +1,64 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIEColumnsBenchmark - one columnar pass, with the Vector API kernel and with the plain loops,
+ * against one PIEPlan.evaluate per row, over 1e4 .. 1e6 rows of Action/Comedy/Drama sizes.
+ * The vector kernel is only there in a jar built with -Pjmh,vector; otherwise both columnar
+ * variants run the plain loops.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class PIEColumnsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean vector;
+
+    private PIEColumns columns;
+    private PIEPlan plan;
+    private long[][] data;
+    private long[] rowMajor;
+    private long[] results;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(5);
+        String[] names = {"Action", "Comedy", "Drama"};
+        columns = PIEColumns.prepare(vector, names);
+        plan = PIEPlan.prepare(names);
+        int width = columns.width();
+        data = new long[width][rows];
+        rowMajor = new long[rows * width];
+        for (int r = 0; r < rows; r++) {
+            long[] values = PIEJmhData.values(names.length, random);
+            for (int mask = 1; mask < width; mask++) {
+                data[mask][r] = values[mask];
+                rowMajor[r * width + mask] = values[mask];
+            }
+        }
+        results = new long[rows];
+    }
+
+    @Benchmark
+    public long[] columnsUnion() {
+        columns.union(data, rows, results);
+        return results;
+    }
+
+    @Benchmark
+    public long[] planEvaluatePerRow() {
+        plan.evaluate(rowMajor, rows, results);
+        return results;
+    }
+}
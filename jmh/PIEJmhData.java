@@ -0,0 +1,47 @@
+package src;
+
+import java.util.*;
+
+/**
+ * PIEJmhData - the inputs shared by the JMH benchmarks, built the same way as in PIEBenchmark:
+ * intersection sizes come from random Venn regions, so every problem is consistent.
+ */
+final class PIEJmhData {
+
+    // Prevent instantiation
+    private PIEJmhData() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    static String[] names(int n) {
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "S" + i;
+        return names;
+    }
+
+    // Mask-indexed intersection sizes of n sets
+    static long[] values(int n, Random random) {
+        long[] regions = new long[1 << n];
+        for (int mask = 1; mask < regions.length; mask++) regions[mask] = random.nextInt(1000);
+        return PIERegions.intersections(regions);
+    }
+
+    // The same sizes keyed "S0∩S1", as the Map-based implementations take them
+    static Map<String, Long> keyed(long[] values, String[] names) {
+        Map<String, Long> data = new LinkedHashMap<>();
+        StringBuilder buffer = new StringBuilder();
+        for (int mask = 1; mask < values.length; mask++) data.put(PIEMaskEngine.key(mask, names, buffer), values[mask]);
+        return data;
+    }
+
+    // count sets of size random elements each, drawn from [0, 2 * size)
+    static List<PIESet> sets(PIESetBackend backend, int count, int size, Random random) {
+        List<PIESet> sets = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            PIESet set = backend.create();
+            for (int i = 0; i < size; i++) set.add(random.nextInt(size * 2));
+            sets.add(set);
+        }
+        return sets;
+    }
+}
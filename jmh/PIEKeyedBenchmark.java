@@ -0,0 +1,63 @@
+package src;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIEKeyedBenchmark - the four implementations on the same "S0∩S1"-keyed map, n = 3 .. 24.
+ * piev4 runs untraced, so every call after the first is a result-cache hit; PIEKeyedMissBenchmark
+ * measures the same call with the cache off. pied2 and userfriendlypied3 run without step output,
+ * PIEINPUT always prints its steps (to a discarded stream here).
+ * The keyed map takes about 4 GB of heap at n = 24; on smaller machines narrow the sweep with -p n=3,6,9.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Dpie.trace=none"})
+@State(Scope.Benchmark)
+public class PIEKeyedBenchmark {
+
+    @Param({"3", "6", "9", "12", "15", "18", "21", "24"})
+    public int n;
+
+    private String[] names;
+    private Map<String, Long> data;
+    private PrintStream out;
+
+    @Setup
+    public void setup() {
+        names = PIEJmhData.names(n);
+        data = PIEJmhData.keyed(PIEJmhData.values(n, new Random(42)), names);
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public PIETotal piev4() {
+        return piev4.inclusionExclusion(data, names);
+    }
+
+    @Benchmark
+    public PIETotal pied2() {
+        return pied2.inclusionExclusion(data, names, PIETrace.Level.NONE);
+    }
+
+    @Benchmark
+    public PIETotal userfriendlypied3() {
+        return userfriendlypied3.inclusionExclusion(data, names, PIETrace.Level.NONE);
+    }
+
+    @Benchmark
+    public PIETotal PIEINPUT() {
+        return PIEINPUT.inclusionExclusion(data);
+    }
+}
@@ -0,0 +1,36 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIEKeyedMissBenchmark - piev4's keyed path with the result cache sized to hold nothing,
+ * so every call fingerprints, checks and sums the problem (compare with PIEKeyedBenchmark.piev4).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Dpie.trace=none", "-Dpie.cache.weight=0"})
+@State(Scope.Benchmark)
+public class PIEKeyedMissBenchmark {
+
+    @Param({"3", "6", "9", "12", "15", "18", "21", "24"})
+    public int n;
+
+    private String[] names;
+    private Map<String, Long> data;
+
+    @Setup
+    public void setup() {
+        names = PIEJmhData.names(n);
+        data = PIEJmhData.keyed(PIEJmhData.values(n, new Random(42)), names);
+    }
+
+    @Benchmark
+    public PIETotal piev4() {
+        return piev4.inclusionExclusion(data, names);
+    }
+}
@@ -0,0 +1,52 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIESetsBenchmark - the runSetBasedPIE path for four sets of |S| = 1e3 .. 1e7 elements on each backend:
+ * the direct union count it prints without steps, and the 2^n intersection lattice it traces.
+ * HASH at |S| = 1e7 needs about 3 GB of heap.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Dpie.trace=none"})
+@State(Scope.Benchmark)
+public class PIESetsBenchmark {
+
+    private static final int SETS = 4;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"BITMAP", "SORTED_ARRAY", "HASH"})
+    public PIESetBackend backend;
+
+    private List<PIESet> sets;
+    private String[] names;
+
+    @Setup
+    public void setup() {
+        sets = PIEJmhData.sets(backend, SETS, size, new Random(7));
+        names = PIEJmhData.names(SETS);
+    }
+
+    @Benchmark
+    public PIETotal unionOfSets() {
+        return piev4.unionOfSets(sets, names, false);
+    }
+
+    @Benchmark
+    public long[] latticeIntersectionSizes() {
+        return PIELattice.intersectionSizes(sets);
+    }
+
+    @Benchmark
+    public PIEBitmap orAll() {
+        return PIEBitmap.orAll(sets);
+    }
+}
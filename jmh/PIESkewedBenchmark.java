@@ -0,0 +1,44 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIESkewedBenchmark - intersection of a 1e3-element set with a 1e6-element one on each backend,
+ * building the result against counting it.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PIESkewedBenchmark {
+
+    @Param({"BITMAP", "SORTED_ARRAY", "HASH"})
+    public PIESetBackend backend;
+
+    private PIESet small;
+    private PIESet large;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(11);
+        small = backend.create();
+        large = backend.create();
+        for (int i = 0; i < 1_000; i++) small.add(random.nextInt(2_000_000));
+        for (int i = 0; i < 1_000_000; i++) large.add(random.nextInt(2_000_000));
+    }
+
+    @Benchmark
+    public long and() {
+        return small.and(large).cardinality();
+    }
+
+    @Benchmark
+    public long andCardinality() {
+        return small.andCardinality(large);
+    }
+}
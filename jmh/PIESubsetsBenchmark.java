@@ -0,0 +1,46 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIESubsetsBenchmark - the eager List&lt;List&lt;Integer&gt;&gt; generateSubsets against the lazy
+ * PIESubsets generators, the List view and the int[] cursor.
+ * The eager lists need about 2 GB of heap at n = 24.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PIESubsetsBenchmark {
+
+    @Param({"3", "6", "9", "12", "15", "18", "21", "24"})
+    public int n;
+
+    @Benchmark
+    @SuppressWarnings("deprecation") // the eager generator is the baseline being measured
+    public int generateSubsetsList() {
+        List<List<Integer>> subsets = new ArrayList<>();
+        pied2.generateSubsets(n, subsets);
+        return subsets.size();
+    }
+
+    @Benchmark
+    public long subsetsLists() {
+        long sizes = 0;
+        for (List<Integer> subset : PIESubsets.lists(n)) sizes += subset.size();
+        return sizes;
+    }
+
+    @Benchmark
+    public long subsetsCursor() {
+        long sizes = 0;
+        PIESubsets.Cursor cursor = PIESubsets.cursor(n);
+        while (cursor.next()) sizes += cursor.size();
+        return sizes;
+    }
+}
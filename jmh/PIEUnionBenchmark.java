@@ -0,0 +1,46 @@
+package src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PIEUnionBenchmark - inclusion-exclusion over mask-indexed sizes, n = 3 .. 24:
+ * the fork-join and sequential PIEMaskEngine sums and a prepared PIEPlan.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PIEUnionBenchmark {
+
+    @Param({"3", "6", "9", "12", "15", "18", "21", "24"})
+    public int n;
+
+    private long[] values;
+    private PIEPlan plan;
+
+    @Setup
+    public void setup() {
+        values = PIEJmhData.values(n, new Random(42));
+        plan = PIEPlan.prepare(PIEJmhData.names(n));
+    }
+
+    @Benchmark
+    public PIETotal maskEngineUnion() {
+        return PIEMaskEngine.union(values);
+    }
+
+    @Benchmark
+    public PIETotal maskEngineUnionSequential() {
+        return PIEMaskEngine.unionSequential(values);
+    }
+
+    @Benchmark
+    public long planEvaluate() {
+        return plan.evaluate(values);
+    }
+}
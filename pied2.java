@@ -1,8 +1,12 @@
+package src;
+
 import java.util.*;
 
 public class pied2 {
 
-    // Function to generate all subsets of given set indexes
+    // Function to generate all subsets of given set indexes.
+    // Eager: holds all 2^n - 1 lists at once. Kept only as the benchmark baseline for PIESubsets.
+    @Deprecated
     public static void generateSubsets(int n, List<List<Integer>> subsets) {
         int total = 1 << n; // 2^n subsets
         for (int mask = 1; mask < total; mask++) {
@@ -17,42 +21,54 @@ public class pied2 {
     }
 
     // PIE Calculation
-    public static int inclusionExclusion(Map<String, Integer> data, String[] setNames) {
+    public static PIETotal inclusionExclusion(Map<String, ? extends Number> data, String[] setNames) {
+        return inclusionExclusion(data, setNames, PIETrace.Level.PER_TERM);
+    }
+
+    // PIE Calculation with a chosen amount of step output (NONE prints nothing)
+    public static PIETotal inclusionExclusion(Map<String, ? extends Number> data, String[] setNames,
+                                              PIETrace.Level level) {
         int n = setNames.length;
-        int total = 0;
-
-        System.out.println("\nSolving using Principle of Inclusion-Exclusion...");
-        System.out.println("Sets: " + String.join(", ", setNames) + "\n");
-
-        // Generate all non-empty subsets
-        List<List<Integer>> subsets = new ArrayList<>();
-        generateSubsets(n, subsets);
-
-        // Apply PIE
-        for (List<Integer> subset : subsets) {
-            // Build intersection key name
-            StringBuilder key = new StringBuilder();
-            for (int i = 0; i < subset.size(); i++) {
-                if (i > 0) key.append("∩");
-                key.append(setNames[subset.get(i)]);
+        PIETotal.Accumulator total = new PIETotal.Accumulator(); // long, BigInteger on overflow
+        PIETotal.Accumulator[] levels = new PIETotal.Accumulator[n + 1];
+        for (int k = 1; k <= n; k++) levels[k] = new PIETotal.Accumulator();
+
+        // Steps are formatted and printed by the trace's background writer
+        try (PIETrace trace = PIETrace.start(level, setNames, System.out::println, PIETrace.TermFormat.SIGNED)) {
+            if (trace.enabled(PIETrace.Level.SUMMARY)) {
+                trace.text("\nSolving using Principle of Inclusion-Exclusion...");
+                trace.text("Sets: " + String.join(", ", setNames) + "\n");
             }
 
-            if (data.containsKey(key.toString())) {
-                int value = data.get(key.toString());
-                int sign = (subset.size() % 2 == 1) ? +1 : -1;
-                total += sign * value;
+            // Apply PIE
+            long start = PIEMetrics.start(); // the walk parses keys and sums in one pass, so it counts as SUM
+            StringBuilder buffer = new StringBuilder(); // one builder for every key
+            PIESubsets.Cursor subset = PIESubsets.cursor(n);
+            while (subset.next()) {
+                // Intersection key name from the subset's mask
+                Number size = data.get(PIEMaskEngine.key(subset.mask(), setNames, buffer));
+                if (size != null) {
+                    long value = size.longValue();
+                    if (subset.size() % 2 == 1) total.add(value);
+                    else total.subtract(value);
+                    levels[subset.size()].add(value);
+
+                    // Record step
+                    trace.term(subset.mask(), value);
+                }
+            }
+            PIEMetrics.record(PIEMetrics.Phase.SUM, start, (1L << n) - 1);
 
-                // Print step
-                if (sign == 1) {
-                    System.out.println("Add " + key + " = +" + value + " -> " + total);
-                } else {
-                                System.out.println("Subtract " + key + " = -" + value + " -> " + total);
+            if (trace.enabled(PIETrace.Level.PER_LEVEL) && !trace.enabled(PIETrace.Level.PER_TERM)) {
+                for (int k = 1; k <= n; k++) {
+                    trace.text("Level " + k + ": " + (k % 2 == 1 ? "+" : "-") + levels[k] + " (" + k + "-set terms)");
                 }
-}
+            }
+            if (trace.enabled(PIETrace.Level.SUMMARY)) {
+                trace.text("\nFinal Answer: Total elements in union = " + total);
+            }
         }
-
-        System.out.println("\nFinal Answer: Total elements in union = " + total);
-        return total;
+        return total.result();
     }
 
     // Dynamic Example (interactive with manual/auto intersections)
@@ -68,51 +84,44 @@ public class pied2 {
             setNames[i] = sc.nextLine();
         }
 
-        Map<String, Integer> data = new LinkedHashMap<>();
+        Map<String, Long> data = new LinkedHashMap<>();
 
         // Enter individual set sizes
         for (String set : setNames) {
             System.out.print("Enter size of " + set + ": ");
-            data.put(set, sc.nextInt());
+            data.put(set, sc.nextLong());
         }
 
         System.out.print("\nDo you want to enter intersections manually? (yes/no): ");
         String choice = sc.next();
 
-        List<List<Integer>> subsets = new ArrayList<>();
-        generateSubsets(n, subsets);
-
         if (choice.equalsIgnoreCase("yes")) {
             System.out.println("\nNow enter intersections (if not applicable, enter 0):");
-            for (List<Integer> subset : subsets) {
+            StringBuilder buffer = new StringBuilder();
+            PIESubsets.Cursor subset = PIESubsets.cursor(n);
+            while (subset.next()) {
                 if (subset.size() >= 2) {
-                    StringBuilder key = new StringBuilder();
-                    for (int i = 0; i < subset.size(); i++) {
-                        if (i > 0) key.append("∩");
-                        key.append(setNames[subset.get(i)]);
-                    }
+                    String key = PIEMaskEngine.key(subset.mask(), setNames, buffer);
                     System.out.print("Enter size of " + key + ": ");
-                    data.put(key.toString(), sc.nextInt());
+                    data.put(key, sc.nextLong());
                 }
             }
         } else {
             System.out.println("\nProgram will auto-calculate approximate intersections:");
-            for (List<Integer> subset : subsets) {
+            StringBuilder buffer = new StringBuilder();
+            PIESubsets.Cursor subset = PIESubsets.cursor(n);
+            while (subset.next()) {
                 if (subset.size() >= 2) {
-                    StringBuilder key = new StringBuilder();
-                    for (int i = 0; i < subset.size(); i++) {
-                        if (i > 0) key.append("∩");
-                        key.append(setNames[subset.get(i)]);
-                    }
+                    String key = PIEMaskEngine.key(subset.mask(), setNames, buffer);
 
-                    int approx = Integer.MAX_VALUE;
-                    for (int idx : subset) {
-                        approx = Math.min(approx, data.get(setNames[idx]));
+                    long approx = Long.MAX_VALUE;
+                    for (int i = 0; i < subset.size(); i++) {
+                        approx = Math.min(approx, data.get(setNames[subset.get(i)]));
                     }
                     approx = approx / 2;
 
                     System.out.println("Approximating size of " + key + " as " + approx);
-                    data.put(key.toString(), approx);
+                    data.put(key, approx);
                 }
             }
         }
@@ -138,24 +147,24 @@ public class pied2 {
 
     // Predefined Example 2: Movie
     public static void movieExample(Scanner sc) {
-        Map<String, Integer> data = new LinkedHashMap<>();
+        Map<String, Long> data = new LinkedHashMap<>();
         String[] sets = {"Action", "Comedy", "Drama"};
 
         System.out.print("Action: ");
-        data.put("Action", sc.nextInt());
+        data.put("Action", sc.nextLong());
         System.out.print("Comedy: ");
-        data.put("Comedy", sc.nextInt());
+        data.put("Comedy", sc.nextLong());
         System.out.print("Drama: ");
-        data.put("Drama", sc.nextInt());
+        data.put("Drama", sc.nextLong());
 
         System.out.print("Action∩Comedy: ");
-        data.put("Action∩Comedy", sc.nextInt());
+        data.put("Action∩Comedy", sc.nextLong());
         System.out.print("Action∩Drama: ");
-        data.put("Action∩Drama", sc.nextInt());
+        data.put("Action∩Drama", sc.nextLong());
         System.out.print("Comedy∩Drama: ");
-        data.put("Comedy∩Drama", sc.nextInt());
+        data.put("Comedy∩Drama", sc.nextLong());
         System.out.print("Action∩Comedy∩Drama: ");
-        data.put("Action∩Comedy∩Drama", sc.nextInt());
+        data.put("Action∩Comedy∩Drama", sc.nextLong());
 
         inclusionExclusion(data, sets);
     }
@@ -178,6 +187,7 @@ public class pied2 {
                 case 2 -> libraryExample();
                 case 3 -> movieExample(sc);
                 case 4 -> {
+                    if (PIEMetrics.ENABLED) System.out.println("Metrics:\n" + PIEMetrics.get().snapshot());
                     System.out.println("Exiting... Goodbye!");
                     sc.close();
                     return;
@@ -1,6 +1,11 @@
 package src;
 
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.*;
 
 
@@ -12,13 +17,26 @@ public final class piev4 {
 
     private static final Logger logger = Logger.getLogger(piev4.class.getName());
 
+    // Set representation for runSetBasedPIE and setOperations (-Dpie.sets=bitmap|hash|sorted_array)
+    private static final PIESetBackend SET_BACKEND = PIESetBackend.fromSystemProperty();
+
+    // Up to this many real sets runSetBasedPIE prints the PIE steps; above it the union is counted directly
+    private static final int STEP_TRACE_MAX_SETS = 12;
+
+    // Step output of inclusionExclusion (-Dpie.trace=none|summary|per_level|per_term)
+    private static final PIETrace.Level TRACE_LEVEL = PIETrace.Level.fromSystemProperty();
+
+    // Union sizes of recently solved problems, shared by every untraced inclusionExclusion call
+    private static final PIECache RESULT_CACHE = new PIECache(
+            Long.getLong("pie.cache.weight", PIECache.DEFAULT_MAX_WEIGHT));
+
     // Prevent instantiation
     private piev4() {
         throw new UnsupportedOperationException("Utility class");
     }
 
-    // Configure logger once
-    static {
+    // ----------- Plain message-only console output for the interactive and batch modes -----------
+    private static void configureConsoleLogging() {
         Logger rootLogger = Logger.getLogger("");
         for (Handler handler : rootLogger.getHandlers()) {
             rootLogger.removeHandler(handler);
@@ -35,56 +53,151 @@ public final class piev4 {
         rootLogger.setLevel(Level.ALL);
     }
 
-    // ----------- Generate all non-empty subsets as bitmasks -----------
-    private static List<int[]> generateSubsets(int n) {
-        List<int[]> subsets = new ArrayList<>();
-        for (int mask = 1; mask < (1 << n); mask++) {
-            int[] subset = new int[Integer.bitCount(mask)];
-            int idx = 0;
-            for (int i = 0; i < n; i++) {
-                if ((mask & (1 << i)) != 0) subset[idx++] = i;
-            }
-            subsets.add(subset);
+    // ----------- Inclusion-Exclusion Formula -----------
+    public static PIETotal inclusionExclusion(Map<String, ? extends Number> data, String[] setNames) {
+        if (PIESparse.preferred(data.size(), setNames.length)) {
+            return sparseInclusionExclusion(data, setNames, TRACE_LEVEL);
         }
-        return subsets;
+        if (TRACE_LEVEL.compareTo(PIETrace.Level.PER_LEVEL) >= 0) {
+            warnInconsistencies(PIESparse.terms(data, setNames), setNames);
+            return inclusionExclusion(PIEMaskEngine.fromKeyedMap(data, setNames), setNames);
+        }
+
+        // No steps wanted: a problem solved before costs one fingerprint of its keys and one lookup;
+        // the keys are checked for consistency and summed only on a miss, never expanded to 2^n
+        PIETotal total;
+        try (PIETrace trace = PIETrace.start(TRACE_LEVEL, setNames, logger::info)) {
+            traceHeader(trace, setNames);
+            total = RESULT_CACHE.union(data, setNames,
+                    () -> warnInconsistencies(PIESparse.terms(data, setNames), setNames));
+            traceAnswer(trace, total);
+        }
+        if (total.signum() < 0) {
+            logger.warning("⚠ Invalid result! Union size cannot be negative.");
+        }
+        return total;
     }
 
-    // ----------- Generate key like A∩B∩C from subset indices -----------
-    private static String subsetKey(int[] subset, String[] setNames) {
-        StringJoiner sj = new StringJoiner("∩");
-        for (int idx : subset) sj.add(setNames[idx]);
-        return sj.toString();
+    // Same check on the dense and sparse paths: a non-zero intersection needs non-zero sub-intersections
+    private static void warnInconsistencies(Map<Long, Long> terms, String[] setNames) {
+        for (String problem : PIESparse.inconsistencies(terms, setNames)) {
+            logger.warning("⚠ Inconsistent input: " + problem);
+        }
     }
 
-    // ----------- Inclusion-Exclusion Formula -----------
-    public static int inclusionExclusion(Map<String, Integer> data, String[] setNames) {
-        int n = setNames.length;
-        int total = 0;
+    // ----------- Only the supplied intersections; missing ones must be empty -----------
+    public static PIETotal sparseInclusionExclusion(Map<String, ? extends Number> data, String[] setNames,
+                                                    PIETrace.Level level) {
+        Map<Long, Long> terms = PIESparse.terms(data, setNames);
+        warnInconsistencies(terms, setNames);
+
+        PIETotal total;
+        try (PIETrace trace = PIETrace.start(level, setNames, logger::info)) {
+            if (trace.enabled(PIETrace.Level.SUMMARY)) {
+                trace.text("Solving using Principle of Inclusion-Exclusion (" + terms.size()
+                        + " non-zero terms, all other intersections empty)...");
+                trace.text("Sets: " + String.join(", ", setNames));
+            }
+            if (trace.enabled(PIETrace.Level.PER_TERM)) {
+                List<Long> masks = new ArrayList<>(terms.keySet());
+                masks.sort(Comparator.comparingInt(Long::bitCount).thenComparing(Long::compareUnsigned));
+                for (long mask : masks) {
+                    trace.text(((Long.bitCount(mask) & 1) == 1 ? "Add " : "Subtract ")
+                            + PIESparse.key(mask, setNames) + " = " + terms.get(mask));
+                }
+            }
+            total = PIESparse.union(terms);
+            if (trace.enabled(PIETrace.Level.SUMMARY) && total.signum() >= 0) {
+                trace.text("Final Answer: Total elements in union = " + total);
+            }
+        }
+
+        if (total.signum() < 0) {
+            logger.warning("⚠ Invalid result! Union size cannot be negative.");
+        }
+        return total;
+    }
 
-        logger.info("Solving using Principle of Inclusion-Exclusion...");
-        logger.info("Sets: " + String.join(", ", setNames));
+    // ----------- Inclusion-Exclusion over mask-indexed intersection sizes -----------
+    public static PIETotal inclusionExclusion(long[] values, String[] setNames) {
+        return inclusionExclusion(values, setNames, TRACE_LEVEL);
+    }
 
-        List<int[]> subsets = generateSubsets(n);
+    public static PIETotal inclusionExclusion(long[] values, String[] setNames, PIETrace.Level level) {
+        PIETotal total;
+        try (PIETrace trace = PIETrace.start(level, setNames, logger::info)) {
+            total = inclusionExclusion(values, setNames, trace);
+        }
+        if (total.signum() < 0) {
+            logger.warning("⚠ Invalid result! Union size cannot be negative.");
+        }
+        return total;
+    }
 
-        for (int[] subset : subsets) {
-            String key = subsetKey(subset, setNames);
-            if (data.containsKey(key)) {
-                int value = data.get(key);
-                int sign = ((subset.length & 1) == 1) ? 1 : -1;
-                total += sign * value;
-                logger.info((sign == 1 ? "Add " : "Subtract ") + key + " = " + value + " -> " + total);
-            }
+    // ----------- Same, with the step output written to out on the calling thread -----------
+    // For in-memory sinks (one server request's buffer): no ring and no shared writer thread.
+    public static PIETotal inclusionExclusion(long[] values, String[] setNames, PIETrace.Level level,
+                                              Consumer<String> out) {
+        try (PIETrace trace = PIETrace.startDirect(level, setNames, out)) {
+            return inclusionExclusion(values, setNames, trace);
         }
+    }
 
-        if (total < 0) {
-            logger.warning("⚠ Invalid result! Union size cannot be negative.");
+    private static PIETotal inclusionExclusion(long[] values, String[] setNames, PIETrace trace) {
+        traceHeader(trace, setNames);
+        PIETotal total;
+        if (trace.enabled(PIETrace.Level.PER_LEVEL)) {
+            total = sumByLevel(values, setNames.length, trace);
         } else {
-            logger.info("Final Answer: Total elements in union = " + total);
+            // No per-term output wanted, so a problem solved before costs one lookup
+            total = RESULT_CACHE.union(values, setNames);
         }
-
+        traceAnswer(trace, total);
         return total;
     }
 
+    private static void traceHeader(PIETrace trace, String[] setNames) {
+        if (trace.enabled(PIETrace.Level.SUMMARY)) {
+            trace.text("Solving using Principle of Inclusion-Exclusion...");
+            trace.text("Sets: " + String.join(", ", setNames));
+        }
+    }
+
+    private static void traceAnswer(PIETrace trace, PIETotal total) {
+        if (trace.enabled(PIETrace.Level.SUMMARY) && total.signum() >= 0) {
+            trace.text("Final Answer: Total elements in union = " + total
+                    + (total.precision() == PIETotal.Precision.BIG_INTEGER ? " (BigInteger precision)" : ""));
+        }
+    }
+
+    // ----------- Sequential sum that records terms and per-level subtotals -----------
+    private static PIETotal sumByLevel(long[] values, int n, PIETrace trace) {
+        long start = PIEMetrics.start();
+        PIETotal.Accumulator[] levels = new PIETotal.Accumulator[n + 1];
+        for (int k = 1; k <= n; k++) levels[k] = new PIETotal.Accumulator();
+
+        for (int mask = 1; mask < values.length; mask++) {
+            long value = values[mask];
+            if (value != 0) {
+                trace.term(mask, value);
+                levels[Integer.bitCount(mask)].add(value);
+            }
+        }
+
+        PIETotal.Accumulator total = new PIETotal.Accumulator();
+        for (int k = 1; k <= n; k++) {
+            PIETotal subtotal = levels[k].result();
+            if ((k & 1) == 1) total.add(subtotal);
+            else total.subtract(subtotal);
+            if (!trace.enabled(PIETrace.Level.PER_TERM)) {
+                trace.text("Level " + k + ": " + ((k & 1) == 1 ? "add " : "subtract ") + k
+                        + "-set terms = " + subtotal + " -> " + total);
+            }
+        }
+        PIEMetrics.record(PIEMetrics.Phase.SUM, start, values.length - 1);
+        return total.result();
+    }
+
     // ----------- Dynamic PIE with optional manual intersections -----------
     public static void runDynamicExample(Scanner sc) {
         logger.info("Enter number of sets: ");
@@ -97,28 +210,31 @@ public final class piev4 {
             setNames[i] = sc.nextLine();
         }
 
-        Map<String, Integer> data = new LinkedHashMap<>();
+        Map<String, Long> data = new LinkedHashMap<>();
         for (String set : setNames) {
             logger.info("Enter size of " + set + ": ");
-            data.put(set, sc.nextInt());
+            data.put(set, sc.nextLong());
         }
 
         logger.info("Do you want to enter intersections manually? (yes/no): ");
         String choice = sc.next();
 
-        List<int[]> subsets = generateSubsets(n);
+        PIESubsets.Cursor subset = PIESubsets.cursor(n);
 
-        for (int[] subset : subsets) {
-            if (subset.length >= 2) {
-                String key = subsetKey(subset, setNames);
+        while (subset.next()) {
+            if (subset.size() >= 2) {
+                String key = PIEMaskEngine.key(subset.mask(), setNames);
                 if (choice.equalsIgnoreCase("yes")) {
                     logger.info("Enter size of " + key + ": ");
-                    data.put(key, sc.nextInt());
+                    data.put(key, sc.nextLong());
                 } else {
-                    int approx = Arrays.stream(subset)
-                            .map(idx -> data.get(setNames[idx]))
-                            .min().orElse(0) / 2;
-                    logger.info("Approximating size of " + key + " as " + approx);
+                    long approx = Long.MAX_VALUE;
+                    for (int i = 0; i < subset.size(); i++) {
+                        approx = Math.min(approx, data.get(setNames[subset.get(i)]));
+                    }
+                    approx = approx / 2;
+                    logger.info("Approximating size of " + key + " as " + approx
+                            + " (rough guess; use Approximate PIE on real elements for estimates with error bounds)");
                     data.put(key, approx);
                 }
             }
@@ -127,6 +243,54 @@ public final class piev4 {
         inclusionExclusion(data, setNames);
     }
 
+    // ----------- Venn regions from sizes and all intersections -----------
+    public static void runRegionsExample(Scanner sc) {
+        logger.info("Enter number of sets: ");
+        int n = sc.nextInt();
+        sc.nextLine();
+
+        String[] setNames = new String[n];
+        for (int i = 0; i < n; i++) {
+            logger.info("Enter name of set " + (i + 1) + ": ");
+            setNames[i] = sc.nextLine();
+        }
+
+        Map<String, Long> data = new LinkedHashMap<>();
+        PIESubsets.Cursor subset = PIESubsets.cursor(n);
+        while (subset.next()) {
+            String key = PIEMaskEngine.key(subset.mask(), setNames);
+            logger.info("Enter size of " + key + ": ");
+            data.put(key, sc.nextLong());
+        }
+
+        try {
+            vennRegions(data, setNames);
+        } catch (ArithmeticException overflow) {
+            logger.warning("⚠ Sizes too large: the region counts overflow a long and cannot be computed exactly.");
+        }
+    }
+
+    public static long[] vennRegions(Map<String, ? extends Number> data, String[] setNames) {
+        int n = setNames.length;
+        long[] regions = PIERegions.exactRegions(data, setNames);
+
+        logger.info("Venn regions (elements in exactly these sets):");
+        for (int mask = 1; mask < regions.length; mask++) {
+            if (regions[mask] != 0) {
+                logger.info("Only " + PIEMaskEngine.key(mask, setNames) + " = " + regions[mask]);
+            }
+            if (regions[mask] < 0) {
+                logger.warning("⚠ Region " + PIEMaskEngine.key(mask, setNames) + " is negative: inconsistent input.");
+            }
+        }
+
+        long[] atLeast = PIERegions.atLeastK(regions, n);
+        for (int k = 1; k <= n; k++) {
+            logger.info("In at least " + k + " set(s) = " + atLeast[k]);
+        }
+        return regions;
+    }
+
     // ----------- PIE with Real Sets -----------
     public static void runSetBasedPIE(Scanner sc) {
         logger.info("Enter number of sets: ");
@@ -134,7 +298,7 @@ public final class piev4 {
         sc.nextLine();
 
         String[] setNames = new String[n];
-        List<Set<Integer>> setsList = new ArrayList<>();
+        List<PIESet> setsList = new ArrayList<>();
 
         for (int i = 0; i < n; i++) {
             logger.info("Enter name of set " + (i + 1) + ": ");
@@ -142,25 +306,69 @@ public final class piev4 {
 
             logger.info("Enter number of elements in " + setNames[i] + ": ");
             int m = sc.nextInt();
-            Set<Integer> temp = new HashSet<>();
+            PIESet temp = SET_BACKEND.create();
             logger.info("Enter elements:");
             for (int j = 0; j < m; j++) temp.add(sc.nextInt());
             setsList.add(temp);
             sc.nextLine();
         }
 
-        Map<String, Integer> data = new LinkedHashMap<>();
-        for (int i = 0; i < n; i++) data.put(setNames[i], setsList.get(i).size());
+        unionOfSets(setsList, setNames, n <= STEP_TRACE_MAX_SETS && TRACE_LEVEL.compareTo(PIETrace.Level.PER_LEVEL) >= 0);
+    }
+
+    // ----------- Union size of real sets, with or without the PIE steps -----------
+    public static PIETotal unionOfSets(List<? extends PIESet> setsList, String[] setNames, boolean showSteps) {
+        if (showSteps) {
+            return inclusionExclusion(PIELattice.intersectionSizes(setsList), setNames);
+        }
+
+        // The elements are known, so |A∪B∪...| is one merged pass instead of 2^n intersections
+        PIETotal total = PIETotal.of(PIEBitmap.orAllCardinality(setsList));
+        if (TRACE_LEVEL != PIETrace.Level.NONE) {
+            logger.info("Sets: " + String.join(", ", setNames));
+            logger.info("Final Answer: Total elements in union = " + total + " (counted directly)");
+        }
+        return total;
+    }
+
+    // ----------- Approximate PIE with HyperLogLog / MinHash sketches -----------
+    public static void runSketchPIE(Scanner sc) {
+        logger.info("Enter number of sets: ");
+        int n = sc.nextInt();
+        sc.nextLine();
+
+        String[] setNames = new String[n];
+        List<PIESketch> sketches = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            logger.info("Enter name of set " + (i + 1) + ": ");
+            setNames[i] = sc.nextLine();
+
+            logger.info("Enter number of elements in " + setNames[i] + ": ");
+            long m = sc.nextLong();
+            PIESketch sketch = new PIESketch();
+            logger.info("Enter elements:");
+            for (long j = 0; j < m; j++) sketch.add(sc.nextLong());
+            sketches.add(sketch);
+            sc.nextLine();
+        }
+
+        for (int i = 0; i < n; i++) {
+            logger.info("|" + setNames[i] + "| ≈ " + sketches.get(i).cardinality());
+        }
 
-        for (int[] subset : generateSubsets(n)) {
-            if (subset.length >= 2) {
-                Set<Integer> inter = new HashSet<>(setsList.get(subset[0]));
-                for (int i = 1; i < subset.length; i++) inter.retainAll(setsList.get(subset[i]));
-                data.put(subsetKey(subset, setNames), inter.size());
+        List<PIESketch> members = new ArrayList<>();
+        PIESubsets.Cursor subset = PIESubsets.cursor(n);
+        while (subset.next()) {
+            if (subset.size() >= 2) {
+                members.clear();
+                for (int i = 0; i < subset.size(); i++) members.add(sketches.get(subset.get(i)));
+                logger.info("|" + PIEMaskEngine.key(subset.mask(), setNames) + "| ≈ "
+                        + PIESketch.intersection(members));
             }
         }
 
-        inclusionExclusion(data, setNames);
+        logger.info("Approximate Answer: Total elements in union ≈ " + PIESketch.union(sketches));
     }
 
     // ----------- Predefined Examples -----------
@@ -176,15 +384,15 @@ public final class piev4 {
 
     public static void movieExample(Scanner sc) {
         String[] sets = {"Action", "Comedy", "Drama"};
-        Map<String, Integer> data = new LinkedHashMap<>();
+        Map<String, Long> data = new LinkedHashMap<>();
         for (String set : sets) {
             logger.info(set + ": ");
-            data.put(set, sc.nextInt());
+            data.put(set, sc.nextLong());
         }
-        data.put("Action∩Comedy", sc.nextInt());
-        data.put("Action∩Drama", sc.nextInt());
-        data.put("Comedy∩Drama", sc.nextInt());
-        data.put("Action∩Comedy∩Drama", sc.nextInt());
+        data.put("Action∩Comedy", sc.nextLong());
+        data.put("Action∩Drama", sc.nextLong());
+        data.put("Comedy∩Drama", sc.nextLong());
+        data.put("Action∩Comedy∩Drama", sc.nextLong());
 
         inclusionExclusion(data, sets);
     }
@@ -196,60 +404,68 @@ public final class piev4 {
         sc.nextLine();
 
         String[] setNames = new String[n];
-        List<Set<Integer>> setsList = new ArrayList<>();
+        PIESetRegistry registry = new PIESetRegistry();
 
         for (int i = 0; i < n; i++) {
             logger.info("Enter name of set " + (i + 1) + ": ");
             setNames[i] = sc.nextLine();
-            logger.info("Enter number of elements in " + setNames[i] + ": ");
-            int m = sc.nextInt();
-            Set<Integer> temp = new HashSet<>();
-            for (int j = 0; j < m; j++) temp.add(sc.nextInt());
-            setsList.add(temp);
-            sc.nextLine();
+            readElements(sc, registry, setNames[i]);
         }
 
-        Set<Integer> universal = new HashSet<>();
-        setsList.forEach(universal::addAll);
-
+        boolean countOnly = false;
+        Path output = null; // results go to the log when null
         while (true) {
             logger.info("Choose Set Operation:");
             logger.info("1. Union");
             logger.info("2. Intersection");
             logger.info("3. Difference");
             logger.info("4. Complement");
-            logger.info("5. Exit");
+            logger.info("5. Add elements to a set");
+            logger.info("6. Count only: " + (countOnly ? "on" : "off"));
+            logger.info("7. Write results to: " + (output == null ? "console" : output));
+            logger.info("8. Exit");
 
             int op = sc.nextInt();
 
+            // Every operation reads the current snapshots, so results reflect elements added since.
+            // Count-only answers never build the result set.
             switch (op) {
                 case 1 -> {
-                    Set<Integer> uni = new HashSet<>();
-                    setsList.forEach(uni::addAll);
-                    logger.info("Union = " + uni);
+                    if (countOnly) logger.info("|Union| = " + registry.unionCardinality(setNames));
+                    else emitResult("Union", registry.union(setNames), output);
                 }
                 case 2 -> {
-                    Set<Integer> inter = new HashSet<>(setsList.get(0));
-                    for (int i = 1; i < n; i++) inter.retainAll(setsList.get(i));
-                    logger.info("Intersection = " + inter);
+                    if (countOnly) logger.info("|Intersection| = " + registry.intersectionCardinality(setNames));
+                    else emitResult("Intersection", registry.intersection(setNames), output);
                 }
                 case 3 -> {
                     logger.info("Choose first set (1-" + n + "): ");
                     int a = sc.nextInt() - 1;
                     logger.info("Choose second set (1-" + n + "): ");
                     int b = sc.nextInt() - 1;
-                    Set<Integer> diff = new HashSet<>(setsList.get(a));
-                    diff.removeAll(setsList.get(b));
-                    logger.info("Difference = " + diff);
+                    if (countOnly) logger.info("|Difference| = " + registry.differenceCardinality(setNames[a], setNames[b]));
+                    else emitResult("Difference", registry.difference(setNames[a], setNames[b]), output);
                 }
                 case 4 -> {
                     logger.info("Choose set index (1-" + n + "): ");
                     int a = sc.nextInt() - 1;
-                    Set<Integer> comp = new HashSet<>(universal);
-                    comp.removeAll(setsList.get(a));
-                    logger.info("Complement = " + comp);
+                    if (countOnly) logger.info("|Complement| = " + registry.complementCardinality(setNames[a]));
+                    else emitResult("Complement", registry.complement(setNames[a]), output);
                 }
                 case 5 -> {
+                    logger.info("Choose set index (1-" + n + "): ");
+                    int a = sc.nextInt() - 1;
+                    sc.nextLine();
+                    readElements(sc, registry, setNames[a]);
+                }
+                case 6 -> countOnly = !countOnly;
+                case 7 -> {
+                    logger.info("Enter output file (blank for console): ");
+                    sc.nextLine();
+                    String path = sc.nextLine().trim();
+                    output = path.isEmpty() ? null : Paths.get(path);
+                }
+                case 8 -> {
                     return;
                 }
                 default -> logger.warning("Invalid choice!");
@@ -257,8 +473,231 @@ public final class piev4 {
         }
     }
 
+    // ----------- A result set, one page per log record or streamed to a file -----------
+    private static void emitResult(String label, PIESet result, Path output) {
+        if (output != null) {
+            try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long written = PIESetWriter.write(result, out);
+                logger.info(label + ": " + written + " element(s) written to " + output);
+            } catch (IOException e) {
+                logger.warning("Could not write " + output + ": " + e.getMessage());
+            }
+            return;
+        }
+        long size = result.cardinality();
+        if (size <= PIESetWriter.DEFAULT_PAGE_SIZE) {
+            PIESetWriter.forEachPage(result, PIESetWriter.DEFAULT_PAGE_SIZE,
+                    (page, count) -> logger.info(label + " = [" + PIESetWriter.format(page, count) + "]"));
+            if (size == 0) logger.info(label + " = []");
+            return;
+        }
+        logger.info(label + " (" + size + " elements):");
+        PIESetWriter.forEachPage(result, PIESetWriter.DEFAULT_PAGE_SIZE,
+                (page, count) -> logger.info(PIESetWriter.format(page, count)));
+    }
+
+    private static void readElements(Scanner sc, PIESetRegistry registry, String name) {
+        logger.info("Enter number of elements in " + name + ": ");
+        int m = sc.nextInt();
+        int[] values = new int[m];
+        for (int j = 0; j < m; j++) values[j] = sc.nextInt();
+        registry.add(name, values);
+        sc.nextLine();
+    }
+
+    // ----------- Set Operations over a memory-mapped binary set store -----------
+    public static void storeSetOperations(Scanner sc) throws IOException {
+        logger.info("Enter path of set store: ");
+        sc.nextLine();
+        Path path = Paths.get(sc.nextLine().trim());
+        if (!Files.isRegularFile(path)) {
+            logger.warning("No such file: " + path);
+            return;
+        }
+
+        try (PIESetStore store = PIESetStore.open(path)) {
+            String[] setNames = store.names();
+            for (int i = 0; i < setNames.length; i++) {
+                logger.info((i + 1) + ". " + setNames[i] + " (" + store.set(i).cardinality() + " elements)");
+            }
+            setOperationsMenu(sc, setNames, store.sets());
+        }
+    }
+
+    // ----------- Set Operations over fixed sets (the store is read-only) -----------
+    // Unions and complements merge the mapped sets directly; nothing is copied onto the heap first.
+    private static void setOperationsMenu(Scanner sc, String[] setNames, List<PIESetStore.MappedSet> setsList) {
+        int n = setNames.length;
+        boolean countOnly = false;
+
+        while (true) {
+            logger.info("Choose Set Operation:");
+            logger.info("1. Union");
+            logger.info("2. Intersection");
+            logger.info("3. Difference");
+            logger.info("4. Complement");
+            logger.info("5. Count only: " + (countOnly ? "on" : "off"));
+            logger.info("6. Exit");
+
+            int op = sc.nextInt();
+
+            // Count-only answers never build the result set
+            switch (op) {
+                case 1 -> {
+                    if (countOnly) logger.info("|Union| = " + PIESetStore.unionCardinality(setsList));
+                    else emitResult("Union", PIESetStore.union(setsList), null);
+                }
+                case 2 -> {
+                    // Smallest set first: every later step is bounded by its size
+                    List<PIESet> bySize = new ArrayList<>(setsList);
+                    bySize.sort(Comparator.comparingLong(PIESet::cardinality));
+                    PIESet inter = bySize.get(0);
+                    int last = countOnly ? n - 1 : n; // when counting, the last step only counts
+                    for (int i = 1; i < last && inter.cardinality() > 0; i++) inter = inter.and(bySize.get(i));
+                    if (!countOnly) emitResult("Intersection", inter, null);
+                    else if (n == 1) logger.info("|Intersection| = " + inter.cardinality());
+                    else logger.info("|Intersection| = " + inter.andCardinality(bySize.get(n - 1)));
+                }
+                case 3 -> {
+                    logger.info("Choose first set (1-" + n + "): ");
+                    int a = sc.nextInt() - 1;
+                    logger.info("Choose second set (1-" + n + "): ");
+                    int b = sc.nextInt() - 1;
+                    PIESet first = setsList.get(a);
+                    if (countOnly) logger.info("|Difference| = " + (first.cardinality() - first.andCardinality(setsList.get(b))));
+                    else emitResult("Difference", first.andNot(setsList.get(b)), null);
+                }
+                case 4 -> {
+                    logger.info("Choose set index (1-" + n + "): ");
+                    int a = sc.nextInt() - 1;
+                    if (countOnly) logger.info("|Complement| = " + PIESetStore.complementCardinality(setsList, setsList.get(a)));
+                    else emitResult("Complement", PIESetStore.complement(setsList, setsList.get(a)), null);
+                }
+                case 5 -> countOnly = !countOnly;
+                case 6 -> {
+                    return;
+                }
+                default -> logger.warning("Invalid choice!");
+            }
+        }
+    }
+
+    // ----------- Pack raw sets from a batch file into a set store: --pack <input> <store> -----------
+    private static void runPack(String[] args) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<PIESet> sets = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(Paths.get(args[1]))) {
+            PIEBatch.parse(in, new PIEBatch.Listener() {
+                private PIESet current;
+                private int lineStart; // sets stored before the current line
+
+                @Override
+                public void count(String key, long value) {
+                    // sizes carry no elements; nothing to store
+                }
+
+                @Override
+                public void beginSet(String name) {
+                    names.add(name);
+                    current = new PIEBitmap();
+                }
+
+                @Override
+                public void element(long value) {
+                    current.add(Math.toIntExact(value));
+                }
+
+                @Override
+                public void endSet() {
+                    sets.add(current);
+                }
+
+                @Override
+                public void endProblem(int lineNumber) {
+                    // sets from every line go into the same store
+                    lineStart = sets.size();
+                }
+
+                @Override
+                public void invalidProblem(int lineNumber, String message) {
+                    logger.warning("Skipping line " + lineNumber + ": " + message);
+                    names.subList(lineStart, names.size()).clear();
+                    sets.subList(lineStart, sets.size()).clear();
+                }
+            });
+        }
+        PIESetStore.write(Paths.get(args[2]), names.toArray(new String[0]), sets);
+        logger.info("Stored " + sets.size() + " set(s) in " + args[2]);
+    }
+
+    // ----------- Out-of-core set operation: --external <operation> <output> <set file>... -----------
+    // Each input file is one set (integers separated by whitespace or commas), named after the file.
+    // difference is first minus second; complement is everything in the other sets but not in the first.
+    private static void runExternal(String[] args) throws IOException {
+        String operation = args[1];
+        Path output = Paths.get(args[2]);
+        String[] names = new String[args.length - 3];
+        if (operation.equals("difference") && names.length != 2) {
+            throw new IllegalArgumentException("difference takes exactly two set files");
+        }
+        try (PIEExternalSets sets = PIEExternalSets.create()) {
+            for (int i = 0; i < names.length; i++) {
+                Path input = Paths.get(args[i + 3]);
+                names[i] = input.getFileName().toString();
+                sets.load(names[i], input);
+            }
+            try (PIEExternalSets.Result result = switch (operation) {
+                case "union" -> sets.union(names);
+                case "intersection" -> sets.intersection(names);
+                case "difference" -> sets.difference(names[0], names[1]);
+                case "complement" -> sets.complement(names[0]);
+                default -> throw new IllegalArgumentException("Unknown operation: " + operation
+                        + " (use union, intersection, difference or complement)");
+            }) {
+                long written = result.writeText(output);
+                logger.info(operation + " of " + String.join(", ", names) + ": " + written + " element(s) written to " + output);
+            }
+        }
+    }
+
+    // ----------- Batch mode: --batch <input> [output] -----------
+    private static void runBatch(String[] args) throws IOException {
+        Path input = Paths.get(args[1]);
+        int solved;
+        if (args.length >= 3) {
+            solved = PIEBatch.run(input, Paths.get(args[2]));
+        } else {
+            try (InputStream in = Files.newInputStream(input)) {
+                solved = PIEBatch.run(in, new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            }
+        }
+        logger.info("Solved " + solved + " problem(s) from " + input);
+    }
+
     // ----------- Main Menu -----------
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 1 && args[0].equals("--serve")) {
+            // The server keeps the JDK's default logging; the console format below is for the menus
+            int port = args.length >= 2 ? Integer.parseInt(args[1]) : PIEServer.DEFAULT_PORT;
+            PIEServer server = PIEServer.start(port);
+            logger.info("PIE server listening on port " + server.port());
+            return;
+        }
+        configureConsoleLogging();
+        if (args.length >= 2 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--pack")) {
+            runPack(args);
+            return;
+        }
+        if (args.length >= 4 && args[0].equals("--external")) {
+            runExternal(args);
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
 
         while (true) {
@@ -268,7 +707,10 @@ public final class piev4 {
             logger.info("3. Library Example");
             logger.info("4. Movie Example");
             logger.info("5. Set Operations");
-            logger.info("6. Exit");
+            logger.info("6. Venn Regions (numbers)");
+            logger.info("7. Approximate PIE (sketches)");
+            logger.info("8. Set Operations (binary store)");
+            logger.info("9. Exit");
             logger.info("Choice: ");
 
             switch (sc.nextInt()) {
@@ -277,7 +719,12 @@ public final class piev4 {
                 case 3 -> libraryExample();
                 case 4 -> movieExample(sc);
                 case 5 -> setOperations(sc);
-                case 6 -> {
+                case 6 -> runRegionsExample(sc);
+                case 7 -> runSketchPIE(sc);
+                case 8 -> storeSetOperations(sc);
+                case 9 -> {
+                    if (RESULT_CACHE.hits() + RESULT_CACHE.misses() > 0) logger.info("Result cache: " + RESULT_CACHE);
+                    if (PIEMetrics.ENABLED) logger.info("Metrics:" + System.lineSeparator() + PIEMetrics.get().snapshot());
                     logger.info("Exiting...");
                     return;
                 }
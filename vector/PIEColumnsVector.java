@@ -0,0 +1,33 @@
+package src;
+
+import jdk.incubator.vector.*;
+
+/**
+ * PIEColumnsVector - PIEColumns' column fold with the Vector API, at the widest long vector the
+ * CPU has (4 lanes with AVX2, 8 with AVX-512). Compiled only by the vector profile and loaded by
+ * PIEColumns at runtime, so the default build needs no incubator module.
+ */
+final class PIEColumnsVector implements PIEColumns.Kernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public long fold(long[] column, boolean add, long[] results, int from, int to) {
+        LongVector magnitudes = LongVector.zero(SPECIES);
+        int r = from;
+        for (int bound = from + SPECIES.loopBound(to - from); r < bound; r += SPECIES.length()) {
+            LongVector values = LongVector.fromArray(SPECIES, column, r);
+            LongVector totals = LongVector.fromArray(SPECIES, results, r);
+            (add ? totals.add(values) : totals.sub(values)).intoArray(results, r);
+            magnitudes = magnitudes.or(values.lanewise(VectorOperators.XOR, values.lanewise(VectorOperators.ASHR, 63)));
+        }
+        long tail = magnitudes.reduceLanes(VectorOperators.OR);
+
+        // The last rows that do not fill a whole vector
+        for (; r < to; r++) {
+            results[r] = add ? results[r] + column[r] : results[r] - column[r];
+            tail |= column[r] ^ (column[r] >> 63);
+        }
+        return tail;
+    }
+}